@@ -0,0 +1,99 @@
+package com.example.integration.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON result against a stored baseline and fails when a benchmark
+ * got slower, or allocates more per operation, by more than the threshold.
+ * <p>
+ * Usage: {@code BaselineComparison [baseline.json] [result.json] [thresholdPercent]},
+ * by default comparing {@code target/jmh-result.json} against the published
+ * {@code baseline/jmh-baseline.json}. Relative paths are looked up in the working
+ * directory and then in {@code benchmarks/}, so both exec:exec (run in this module)
+ * and exec:java (run where mvn was started) find them.
+ */
+public final class BaselineComparison {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+    private static final String DEFAULT_BASELINE = "baseline/jmh-baseline.json";
+    private static final String DEFAULT_RESULT = "target/jmh-result.json";
+
+    private BaselineComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        File baselineFile = locate(args.length > 0 ? args[0] : DEFAULT_BASELINE);
+        File resultFile = locate(args.length > 1 ? args[1] : DEFAULT_RESULT);
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        for (File file : new File[]{baselineFile, resultFile}) {
+            if (!file.isFile()) {
+                System.err.println("Not found: " + file
+                        + "\nUsage: BaselineComparison [baseline.json] [result.json] [thresholdPercent]");
+                System.exit(2);
+            }
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, double[]> baseline = scores(objectMapper.readTree(baselineFile));
+        Map<String, double[]> current = scores(objectMapper.readTree(resultFile));
+
+        int regressions = 0;
+        System.out.printf("%-80s %14s %14s %8s %14s %8s%n",
+                "Benchmark", "Baseline", "Current", "Time", "Alloc B/op", "Alloc");
+        for (Map.Entry<String, double[]> entry : current.entrySet()) {
+            double[] before = baseline.get(entry.getKey());
+            double[] after = entry.getValue();
+            if (before == null) {
+                System.out.printf("%-80s %14s %14.3f%n", entry.getKey(), "-", after[0]);
+                continue;
+            }
+            double timeChange = change(before[0], after[0]);
+            double allocChange = change(before[1], after[1]);
+            boolean regressed = timeChange > threshold || allocChange > threshold;
+            regressions += regressed ? 1 : 0;
+            System.out.printf("%-80s %14.3f %14.3f %+7.1f%% %14.0f %+7.1f%%%s%n",
+                    entry.getKey(), before[0], after[0], timeChange, after[1], allocChange,
+                    regressed ? "  REGRESSION" : "");
+        }
+
+        if (regressions > 0) {
+            System.out.printf("%d benchmark(s) regressed by more than %.1f%%%n", regressions, threshold);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Benchmark name with params -> {primary score, allocated bytes per op}. All
+     * benchmarks here report time per operation, so a higher score is worse.
+     */
+    private static Map<String, double[]> scores(JsonNode results) {
+        Map<String, double[]> scores = new TreeMap<>();
+        for (JsonNode result : results) {
+            Map<String, String> params = new LinkedHashMap<>();
+            result.path("params").fields().forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+            String key = result.path("benchmark").asText() + (params.isEmpty() ? "" : " " + params);
+
+            double score = result.path("primaryMetric").path("score").asDouble();
+            double allocation = result.path("secondaryMetrics").path(ALLOCATION).path("score").asDouble(0);
+            scores.put(key, new double[]{score, allocation});
+        }
+        return scores;
+    }
+
+    private static File locate(String path) {
+        File file = new File(path);
+        File inModule = new File("benchmarks", path);
+        return file.exists() || file.isAbsolute() || !inModule.exists() ? file : inModule;
+    }
+
+    private static double change(double before, double after) {
+        return before == 0 ? 0 : (after - before) / before * 100;
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.integration.benchmark;
+
+import com.example.integration.MultiSystemIntegrationApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * End-to-end load test: starts the {@link MockVendorServer} and the application
+ * in-process, registers mock systems as configurations and drives
+ * {@code POST /api/sync/*} against them. Everything runs on localhost.
+ * <p>
+ * Reports records/sec, sync latency percentiles and the heap high-water mark
+ * (peak usage of all heap pools during the measured runs).
+ * <p>
+ * Options ({@code --name=value}): {@code systems} (1), {@code runs} (5),
+ * {@code records} per system (100000), {@code pageSize} (1000), {@code latencyMs} (0),
+ * {@code throttleEvery} (0), {@code chunkRecords} (0), {@code chunkDelayMs} (0),
+ * {@code mode} = {@code single} (each system via /api/sync/{system}) or {@code all}
+ * (/api/sync/all).
+ */
+public final class LoadHarness {
+
+    private final Map<String, String> options;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private String appUrl;
+
+    private LoadHarness(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        new LoadHarness(options).run();
+    }
+
+    private void run() throws Exception {
+        int systems = option("systems", 1);
+        int runs = option("runs", 5);
+        boolean syncAll = "all".equals(options.getOrDefault("mode", "single"));
+
+        try (MockVendorServer vendor = new MockVendorServer(0);
+             ConfigurableApplicationContext app = startApplication()) {
+            appUrl = "http://127.0.0.1:" + app.getEnvironment().getProperty("local.server.port");
+
+            List<String> systemNames = new ArrayList<>();
+            for (int i = 1; i <= systems; i++) {
+                String systemName = "mock-" + i;
+                registerSystem(systemName, vendor.baseUrl());
+                systemNames.add(systemName);
+            }
+
+            System.out.println("Warm-up run...");
+            syncRound(systemNames, syncAll, new ArrayList<>());
+
+            resetPeakHeap();
+            List<Long> latenciesMs = new ArrayList<>();
+            long records = 0;
+            long started = System.nanoTime();
+            for (int run = 1; run <= runs; run++) {
+                long runRecords = syncRound(systemNames, syncAll, latenciesMs);
+                records += runRecords;
+                System.out.printf("Run %d: %d records%n", run, runRecords);
+            }
+            double seconds = (System.nanoTime() - started) / 1e9;
+
+            Collections.sort(latenciesMs);
+            System.out.println();
+            System.out.printf("Syncs:            %d (%d systems x %d runs, mode=%s)%n",
+                    latenciesMs.size(), systems, runs, syncAll ? "all" : "single");
+            System.out.printf("Records:          %d in %.1fs%n", records, seconds);
+            System.out.printf("Throughput:       %.0f records/s%n", records / seconds);
+            System.out.printf("Sync latency:     p50 %d ms, p99 %d ms, max %d ms%n",
+                    percentile(latenciesMs, 50), percentile(latenciesMs, 99), percentile(latenciesMs, 100));
+            System.out.printf("Heap high-water:  %d MB%n", peakHeapBytes() / (1024 * 1024));
+            System.out.printf("Vendor requests:  %d (%d answered with 429)%n", vendor.getRequests(), vendor.getThrottled());
+        }
+    }
+
+    private ConfigurableApplicationContext startApplication() {
+        return new SpringApplicationBuilder(MultiSystemIntegrationApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+                        "integration.scheduler.enabled=false",
+                        "logging.level.com.example.integration=WARN")
+                .run();
+    }
+
+    private void registerSystem(String systemName, String vendorUrl) throws IOException, InterruptedException {
+        Map<String, String> queryParams = new LinkedHashMap<>();
+        queryParams.put("total", String.valueOf(option("records", 100_000)));
+        for (String name : List.of("latencyMs", "throttleEvery", "chunkRecords", "chunkDelayMs")) {
+            if (options.containsKey(name)) {
+                queryParams.put(name, options.get(name));
+            }
+        }
+
+        Map<String, Object> pagination = Map.of(
+                "type", "cursor",
+                "cursorPath", "paging.next.after",
+                "cursorParam", "after",
+                "limitParam", "limit",
+                "pageSize", option("pageSize", 1000));
+
+        Map<String, Object> configuration = new LinkedHashMap<>();
+        configuration.put("systemName", systemName);
+        configuration.put("apiUrl", vendorUrl + "/users");
+        configuration.put("httpMethod", "GET");
+        configuration.put("headers", "{}");
+        configuration.put("queryParams", objectMapper.writeValueAsString(queryParams));
+        configuration.put("fieldMappings", objectMapper.writeValueAsString(Payloads.HUBSPOT_MAPPINGS));
+        configuration.put("dataPath", Payloads.DATA_PATH);
+        configuration.put("pagination", objectMapper.writeValueAsString(pagination));
+        configuration.put("rateLimit", "{\"maxRetries\":10,\"initialBackoffMillis\":100,\"circuitFailureThreshold\":50}");
+        configuration.put("active", true);
+
+        HttpResponse<String> response = post("/api/configurations", objectMapper.writeValueAsString(configuration));
+        if (response.statusCode() != 201) {
+            throw new IllegalStateException("Failed to register " + systemName + ": " + response.body());
+        }
+    }
+
+    /**
+     * Sync every system once and return the number of records fetched
+     */
+    private long syncRound(List<String> systemNames, boolean syncAll, List<Long> latenciesMs)
+            throws IOException, InterruptedException {
+        long records = 0;
+        if (syncAll) {
+            long started = System.nanoTime();
+            JsonNode responses = objectMapper.readTree(post("/api/sync/all", "").body());
+            latenciesMs.add((System.nanoTime() - started) / 1_000_000);
+            for (JsonNode response : responses) {
+                records += checked(response);
+            }
+            return records;
+        }
+        for (String systemName : systemNames) {
+            long started = System.nanoTime();
+            JsonNode response = objectMapper.readTree(post("/api/sync/" + systemName, "").body());
+            latenciesMs.add((System.nanoTime() - started) / 1_000_000);
+            records += checked(response);
+        }
+        return records;
+    }
+
+    private static long checked(JsonNode response) {
+        if (!response.path("success").asBoolean()) {
+            System.out.println("Sync failed: " + response.path("systemName").asText() + " - "
+                    + response.path("message").asText());
+        }
+        return response.path("usersFetched").asLong();
+    }
+
+    private HttpResponse<String> post(String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(appUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return http.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Sum of the heap pools' peak usage; pools peak at different moments, so this
+     * is an upper bound of the true high-water mark
+     */
+    private static long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static long percentile(List<Long> sorted, int percentile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+
+    private int option(String name, int defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.integration.benchmark;
+
+import com.example.integration.model.AdditionalDataCodec;
+import com.example.integration.model.User;
+import com.example.integration.service.ContentHash;
+import com.example.integration.service.FieldMappingPlan;
+import com.example.integration.service.JsonRecordStreamer;
+import com.example.integration.service.RawRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of parsed records to User entities with nested HubSpot-style paths,
+ * including the binary additionalData encoding and content hash of mapToUser
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class MapBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int records;
+
+    private ObjectMapper objectMapper;
+    private FieldMappingPlan plan;
+    private List<RawRecord> parsed;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        objectMapper = new ObjectMapper();
+        plan = FieldMappingPlan.compile(Payloads.HUBSPOT_MAPPINGS);
+
+        byte[] payload = Payloads.hubSpotPage(objectMapper, records);
+        try (JsonRecordStreamer streamer = new JsonRecordStreamer(objectMapper, Payloads.DATA_PATH)) {
+            parsed = new ArrayList<>(streamer.feed(payload, 0, payload.length));
+            parsed.addAll(streamer.endOfInput());
+        }
+    }
+
+    @Benchmark
+    public void mapOnly(Blackhole blackhole) {
+        for (RawRecord record : parsed) {
+            blackhole.consume(plan.map(record.fields(), "hubspot"));
+        }
+    }
+
+    @Benchmark
+    public void mapWithAdditionalData(Blackhole blackhole) {
+        for (RawRecord record : parsed) {
+            User user = plan.map(record.fields(), "hubspot");
+            byte[] additionalData = AdditionalDataCodec.encode(record.tokens());
+            user.setAdditionalData(additionalData);
+            user.setContentHash(ContentHash.ofUser(additionalData, user));
+            blackhole.consume(user);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.integration.benchmark;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Offline stand-in for a vendor user API, built on the JDK HTTP server.
+ * <p>
+ * {@code GET /users} serves HubSpot-style cursor pages ({@code results[]},
+ * {@code paging.next.after}). Every behaviour is driven by query params, so one
+ * server covers many scenarios and an {@code ApiConfiguration} selects its own:
+ * <ul>
+ *   <li>{@code total} - records in the data set (default 10000)</li>
+ *   <li>{@code limit} / {@code after} - page size and cursor</li>
+ *   <li>{@code latencyMs} - delay before the response headers</li>
+ *   <li>{@code throttleEvery} - answer every Nth request with 429 and {@code Retry-After: 1}</li>
+ *   <li>{@code chunkRecords} / {@code chunkDelayMs} - flush the body every N records and
+ *       pause in between, for slow chunked responses</li>
+ * </ul>
+ * Responses are gzipped when the client accepts it.
+ * <p>
+ * Standalone: {@code MockVendorServer [port]} (default 8090).
+ */
+public final class MockVendorServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "mock-vendor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+
+    public MockVendorServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 128);
+        server.createContext("/users", this::handleUsers);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public static void main(String[] args) throws IOException {
+        MockVendorServer server = new MockVendorServer(args.length > 0 ? Integer.parseInt(args[0]) : 8090);
+        System.out.println("Mock vendor API listening on " + server.baseUrl() + "/users");
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getThrottled() {
+        return throttled.get();
+    }
+
+    private void handleUsers(HttpExchange exchange) throws IOException {
+        try {
+            Map<String, String> params = queryParams(exchange.getRequestURI());
+            int total = intParam(params, "total", 10_000);
+            int limit = intParam(params, "limit", 100);
+            int after = intParam(params, "after", 0);
+            int throttleEvery = intParam(params, "throttleEvery", 0);
+            int chunkRecords = intParam(params, "chunkRecords", 0);
+            int chunkDelayMs = intParam(params, "chunkDelayMs", 0);
+
+            long request = requests.incrementAndGet();
+            sleep(intParam(params, "latencyMs", 0));
+
+            if (throttleEvery > 0 && request % throttleEvery == 0) {
+                throttled.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                exchange.getResponseHeaders().set("X-RateLimit-Remaining", "0");
+                exchange.sendResponseHeaders(429, -1);
+                return;
+            }
+
+            boolean gzip = String.valueOf(exchange.getRequestHeaders().getFirst("Accept-Encoding")).contains("gzip");
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            if (gzip) {
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            // Length 0 = chunked transfer encoding
+            exchange.sendResponseHeaders(200, 0);
+
+            int end = Math.min(total, after + limit);
+            OutputStream body = gzip ? new GZIPOutputStream(exchange.getResponseBody(), 8192, true)
+                    : exchange.getResponseBody();
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(body, JsonEncoding.UTF8)) {
+                Random random = new Random(after);
+                json.writeStartObject();
+                json.writeArrayFieldStart(Payloads.DATA_PATH);
+                for (int i = after; i < end; i++) {
+                    Payloads.writeRecord(json, i, random);
+                    if (chunkRecords > 0 && (i - after + 1) % chunkRecords == 0) {
+                        json.flush();
+                        sleep(chunkDelayMs);
+                    }
+                }
+                json.writeEndArray();
+                if (end < total) {
+                    json.writeObjectFieldStart("paging");
+                    json.writeObjectFieldStart("next");
+                    json.writeStringField("after", String.valueOf(end));
+                    json.writeEndObject();
+                    json.writeEndObject();
+                }
+                json.writeEndObject();
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static Map<String, String> queryParams(URI uri) {
+        Map<String, String> params = new HashMap<>();
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static int intParam(Map<String, String> params, String name, int defaultValue) {
+        String value = params.get(name);
+        return value == null || value.isEmpty() ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static void sleep(int millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.integration.benchmark;
+
+import com.example.integration.service.JsonRecordStreamer;
+import com.example.integration.service.RawRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming parse of a vendor page, fed in network-sized chunks the way
+ * GenericApiClient feeds response buffers
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ParseBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int records;
+
+    @Param({"8192"})
+    public int chunkSize;
+
+    private ObjectMapper objectMapper;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        payload = Payloads.hubSpotPage(objectMapper, records);
+    }
+
+    @Benchmark
+    public int parse(Blackhole blackhole) throws IOException {
+        int parsed = 0;
+        try (JsonRecordStreamer streamer = new JsonRecordStreamer(objectMapper, Payloads.DATA_PATH)) {
+            for (int offset = 0; offset < payload.length; offset += chunkSize) {
+                int length = Math.min(chunkSize, payload.length - offset);
+                for (RawRecord record : streamer.feed(payload, offset, length)) {
+                    blackhole.consume(record);
+                    parsed++;
+                }
+            }
+            for (RawRecord record : streamer.endOfInput()) {
+                blackhole.consume(record);
+                parsed++;
+            }
+        }
+        return parsed;
+    }
+}
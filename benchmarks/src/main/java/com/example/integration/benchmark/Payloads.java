@@ -0,0 +1,82 @@
+package com.example.integration.benchmark;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Synthetic vendor payloads shaped like a HubSpot contacts page: records under
+ * {@code results} with the interesting fields nested in {@code properties}
+ */
+final class Payloads {
+
+    static final String DATA_PATH = "results";
+
+    static final Map<String, String> HUBSPOT_MAPPINGS = Map.of(
+            "id", "externalId",
+            "properties.email", "email",
+            "properties.firstname", "name",
+            "properties.phone", "phoneNumber",
+            "properties.hs_timezone", "timezone",
+            "properties.avatar.url", "avatarUrl");
+
+    private static final String[] TIMEZONES = {
+            "America/New_York", "America/Chicago", "America/Los_Angeles", "Europe/London", "Europe/Berlin", "Asia/Kolkata"};
+
+    private Payloads() {
+    }
+
+    /**
+     * JSON page with the given number of records; a fixed seed keeps runs comparable
+     */
+    static byte[] hubSpotPage(ObjectMapper objectMapper, int records) {
+        Random random = new Random(42);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(records * 400);
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            json.writeStartObject();
+            json.writeArrayFieldStart(DATA_PATH);
+            for (int i = 0; i < records; i++) {
+                writeRecord(json, i, random);
+            }
+            json.writeEndArray();
+            json.writeObjectFieldStart("paging");
+            json.writeObjectFieldStart("next");
+            json.writeStringField("after", String.valueOf(100_000 + records));
+            json.writeEndObject();
+            json.writeEndObject();
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * One HubSpot-style contact record
+     */
+    static void writeRecord(JsonGenerator json, int index, Random random) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("id", String.valueOf(100_000 + index));
+        json.writeObjectFieldStart("properties");
+        json.writeStringField("email", "user" + index + "@example.com");
+        json.writeStringField("firstname", "User " + index);
+        json.writeStringField("lastname", "Synthetic");
+        json.writeStringField("phone", "+1-555-" + (1000 + random.nextInt(9000)));
+        json.writeStringField("hs_timezone", TIMEZONES[random.nextInt(TIMEZONES.length)]);
+        json.writeObjectFieldStart("avatar");
+        json.writeStringField("url", "https://cdn.example.com/avatars/" + index + ".png");
+        json.writeNumberField("size", 128);
+        json.writeEndObject();
+        json.writeStringField("lifecyclestage", random.nextBoolean() ? "lead" : "customer");
+        json.writeEndObject();
+        json.writeStringField("createdAt", "2024-01-" + (10 + random.nextInt(18)) + "T10:15:30.000Z");
+        json.writeBooleanField("archived", false);
+        json.writeEndObject();
+    }
+}
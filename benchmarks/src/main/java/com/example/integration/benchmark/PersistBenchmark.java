@@ -0,0 +1,107 @@
+package com.example.integration.benchmark;
+
+import com.example.integration.MultiSystemIntegrationApplication;
+import com.example.integration.model.AdditionalDataCodec;
+import com.example.integration.model.User;
+import com.example.integration.repository.StagingStore;
+import com.example.integration.repository.UpsertResult;
+import com.example.integration.repository.UserRepository;
+import com.example.integration.service.ContentHash;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk upsert of a system's users into in-memory H2 through the real repository,
+ * in batches of the default sync batch size
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class PersistBenchmark {
+
+    private static final String SYSTEM = "benchmark";
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * INSERT: empty table; UNCHANGED: same users already stored; UPDATED: stored with other content
+     */
+    public enum Scenario { INSERT, UNCHANGED, UPDATED }
+
+    @Param({"1000", "10000", "100000"})
+    public int records;
+
+    @Param({"INSERT", "UNCHANGED", "UPDATED"})
+    public Scenario scenario;
+
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = new SpringApplicationBuilder(MultiSystemIntegrationApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "integration.scheduler.enabled=false",
+                        "logging.level.com.example.integration=WARN")
+                .run();
+        userRepository = context.getBean(UserRepository.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void prepareTable() {
+        userRepository.deleteAllInBatch();
+        if (scenario != Scenario.INSERT) {
+            upsert(users(scenario == Scenario.UPDATED ? "stale" : "current"));
+        }
+    }
+
+    @Benchmark
+    public UpsertResult upsert() {
+        return upsert(users("current"));
+    }
+
+    private UpsertResult upsert(List<User> users) {
+        UpsertResult total = UpsertResult.EMPTY;
+        for (int from = 0; from < users.size(); from += BATCH_SIZE) {
+            List<User> batch = users.subList(from, Math.min(from + BATCH_SIZE, users.size()));
+            total = total.plus(userRepository.upsertAll(SYSTEM, StagingStore.LIVE, batch));
+        }
+        return total;
+    }
+
+    /**
+     * Fresh, unmanaged users; the version string changes their content and hash
+     */
+    private List<User> users(String version) {
+        List<User> users = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            byte[] data = AdditionalDataCodec.encode(Map.of("id", String.valueOf(i), "version", version));
+            users.add(User.builder()
+                    .externalId(String.valueOf(i))
+                    .systemName(SYSTEM)
+                    .name("User " + i)
+                    .email("user" + i + "@example.com")
+                    .timezone("Europe/Berlin")
+                    .additionalData(data)
+                    .contentHash(ContentHash.of(data))
+                    .build());
+        }
+        return users;
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() {
+        context.close();
+    }
+}
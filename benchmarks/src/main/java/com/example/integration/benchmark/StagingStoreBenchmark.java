@@ -0,0 +1,111 @@
+package com.example.integration.benchmark;
+
+import com.example.integration.MultiSystemIntegrationApplication;
+import com.example.integration.model.AdditionalDataCodec;
+import com.example.integration.model.User;
+import com.example.integration.model.UserField;
+import com.example.integration.repository.StagingStore;
+import com.example.integration.repository.UpsertResult;
+import com.example.integration.service.ContentHash;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One "fetch, look, clear" cycle against each staging backend: upsert a system's
+ * users in sync-sized batches, read them back page by page and clear the system
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-XX:MaxDirectMemorySize=2g"})
+public class StagingStoreBenchmark {
+
+    private static final String SYSTEM = "benchmark";
+    private static final int BATCH_SIZE = 500;
+    private static final int PAGE_SIZE = 1000;
+    private static final String[] TIMEZONES = {"Europe/Berlin", "America/New_York", "Asia/Kolkata", "UTC"};
+
+    @Param({"10000", "100000"})
+    public int records;
+
+    /**
+     * jpa: temporary_users in H2; memory / memory-offheap: the columnar store
+     */
+    @Param({"jpa", "memory", "memory-offheap"})
+    public String store;
+
+    private ConfigurableApplicationContext context;
+    private StagingStore stagingStore;
+    private List<User> users;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = new SpringApplicationBuilder(MultiSystemIntegrationApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:staging-benchmark;DB_CLOSE_DELAY=-1",
+                        "integration.scheduler.enabled=false",
+                        "integration.staging.store=" + (store.startsWith("memory") ? "memory" : "jpa"),
+                        "integration.staging.off-heap=" + store.endsWith("offheap"),
+                        "logging.level.com.example.integration=WARN")
+                .run();
+        stagingStore = context.getBean(StagingStore.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void prepareUsers() {
+        stagingStore.deleteAll();
+        users = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            byte[] data = AdditionalDataCodec.encode(Map.of(
+                    "id", String.valueOf(i),
+                    "department", "Department " + (i % 50),
+                    "title", "Title " + (i % 200)));
+            users.add(User.builder()
+                    .externalId(String.valueOf(i))
+                    .systemName(SYSTEM)
+                    .name("User " + i)
+                    .email("user" + i + "@example.com")
+                    .timezone(TIMEZONES[i % TIMEZONES.length])
+                    .additionalData(data)
+                    .contentHash(ContentHash.of(data))
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public UpsertResult fetchLookClear(Blackhole blackhole) {
+        UpsertResult total = UpsertResult.EMPTY;
+        for (int from = 0; from < users.size(); from += BATCH_SIZE) {
+            total = total.plus(stagingStore.upsertAll(SYSTEM, users.subList(from, Math.min(from + BATCH_SIZE, users.size()))));
+        }
+
+        Long afterId = null;
+        List<Map<String, Object>> page;
+        do {
+            page = stagingStore.findPage(SYSTEM, afterId, PAGE_SIZE, UserField.DEFAULT);
+            blackhole.consume(page);
+            if (!page.isEmpty()) {
+                afterId = (Long) page.get(page.size() - 1).get(UserField.ID.attribute());
+            }
+        } while (page.size() == PAGE_SIZE);
+
+        stagingStore.deleteBySystemName(SYSTEM);
+        return total;
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() {
+        context.close();
+    }
+}
@@ -0,0 +1,4 @@
+package com.example.integration.benchmark.jmh_generated;
+public class MapBenchmark_jmhType extends MapBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package com.example.integration.benchmark.jmh_generated;
+public class ParseBenchmark_jmhType extends ParseBenchmark_jmhType_B3 {
+}
+
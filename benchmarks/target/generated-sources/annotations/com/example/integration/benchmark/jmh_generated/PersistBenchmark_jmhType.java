@@ -0,0 +1,4 @@
+package com.example.integration.benchmark.jmh_generated;
+public class PersistBenchmark_jmhType extends PersistBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package com.example.integration.benchmark.jmh_generated;
+public class StagingStoreBenchmark_jmhType extends StagingStoreBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,138 @@
+package com.example.integration.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Tunables for the sync pipeline, bound from {@code integration.*} properties
+ */
+@Data
+@ConfigurationProperties(prefix = "integration")
+public class IntegrationProperties {
+
+    private Sync sync = new Sync();
+    private Jobs jobs = new Jobs();
+    private Scheduler scheduler = new Scheduler();
+    private Staging staging = new Staging();
+    private Spool spool = new Spool();
+    private Webhooks webhooks = new Webhooks();
+    private ResponseCache responseCache = new ResponseCache();
+
+    @Data
+    public static class Sync {
+
+        // Systems synced at the same time by "sync all"
+        private int maxConcurrentSystems = 8;
+
+        // Wall-clock limit for one system's sync, unless its configuration overrides it
+        private Duration systemTimeout = Duration.ofMinutes(10);
+
+        // Users per bulk upsert transaction (keep in line with hibernate.jdbc.batch_size)
+        private int batchSize = 500;
+
+        // Threads running the blocking database work of non-blocking syncs (keep within the connection pool)
+        private int persistThreads = 8;
+
+        // Database tasks waiting for a persist thread; further syncs fail fast
+        private int persistQueueCapacity = 10_000;
+
+        // Requests for a system that is already syncing wait for one follow-up run instead of sharing the running one
+        private boolean coalesceFollowUp = false;
+    }
+
+    @Data
+    public static class Jobs {
+
+        // Background sync jobs running at the same time
+        private int workers = 2;
+
+        // Jobs waiting for a worker; further submissions are rejected
+        private int queueCapacity = 16;
+
+        // How long finished jobs stay available for status polling
+        private Duration retention = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class Scheduler {
+
+        // Run syncs on the interval/cron schedules of the configurations
+        private boolean enabled = true;
+
+        // How often due schedules are checked (also read by @Scheduled, keep ISO-8601)
+        private Duration tick = Duration.ofSeconds(5);
+
+        // Scheduled syncs running at the same time; due systems beyond this wait for the next tick
+        private int maxConcurrentSyncs = 4;
+
+        // Random delay added to every scheduled run
+        private Duration maxJitter = Duration.ofSeconds(30);
+
+        // Window over which systems sharing the same cron expression are spread
+        private Duration cronSpread = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class Staging {
+
+        // Backend for staged users: "jpa" (temporary_users table) or "memory" (columnar, lost on restart)
+        private String store = "jpa";
+
+        // Keep the memory store's string and raw record data in direct buffers outside the heap
+        private boolean offHeap = false;
+
+        // Allocation unit of the memory store's blob arena
+        private DataSize arenaChunkSize = DataSize.ofMegabytes(4);
+
+        // Write full syncs as a new generation that replaces the system's users at once when published
+        private boolean snapshots = false;
+    }
+
+    @Data
+    public static class Spool {
+
+        // Keep the raw response pages of every sync run on disk so mappings can be re-applied
+        private boolean enabled = false;
+
+        // Root directory of the spool; one subdirectory per system
+        private String directory = "./data/spool";
+
+        // Segment files roll over at this size
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+        // Workers replaying spooled pages for a remap; 0 = one per CPU core
+        private int replayParallelism = 0;
+    }
+
+    @Data
+    public static class Webhooks {
+
+        // Distinct users waiting to be written; events beyond this are rejected with 429
+        private int queueCapacity = 50_000;
+
+        // Write pending users once this many have accumulated...
+        private int flushSize = 1_000;
+
+        // ...or once the oldest of them has waited this long
+        private Duration flushInterval = Duration.ofSeconds(1);
+
+        // Writes of a user before it is given up on; failed users stay buffered in between...
+        private int retryAttempts = 6;
+
+        // ...and the writer waits this long after the first failure, doubling after each further one
+        private Duration retryBackoff = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class ResponseCache {
+
+        // Response bodies kept for systems with responseCacheTtlSeconds; least recently used go first
+        private DataSize maxSize = DataSize.ofMegabytes(256);
+
+        // Larger responses are never cached
+        private DataSize maxEntrySize = DataSize.ofMegabytes(16);
+    }
+}
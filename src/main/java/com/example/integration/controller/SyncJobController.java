@@ -0,0 +1,79 @@
+package com.example.integration.controller;
+
+import com.example.integration.dto.SyncJobStatus;
+import com.example.integration.service.SyncJobService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("/api/jobs")
+@RequiredArgsConstructor
+public class SyncJobController {
+
+    private final SyncJobService syncJobService;
+
+    /**
+     * Start a background sync of a specific system
+     */
+    @PostMapping("/sync/{systemName}")
+    public ResponseEntity<SyncJobStatus> submitSync(@PathVariable String systemName) {
+        return accepted(syncJobService.submit(systemName));
+    }
+
+    /**
+     * Start a background sync of all active systems
+     */
+    @PostMapping("/sync/all")
+    public ResponseEntity<SyncJobStatus> submitSyncAll() {
+        return accepted(syncJobService.submit(SyncJobService.ALL_SYSTEMS));
+    }
+
+    /**
+     * Get all known jobs, most recent first
+     */
+    @GetMapping
+    public ResponseEntity<List<SyncJobStatus>> getJobs() {
+        return ResponseEntity.ok(syncJobService.getJobs());
+    }
+
+    /**
+     * Get state and progress of a job
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<SyncJobStatus> getJob(@PathVariable String jobId) {
+        return syncJobService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Cancel a queued or running job
+     */
+    @DeleteMapping("/{jobId}")
+    public ResponseEntity<SyncJobStatus> cancelJob(@PathVariable String jobId) {
+        return syncJobService.cancel(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * The job queue is full - the caller should retry later
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<String> handleQueueFull(RejectedExecutionException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .body("Too many sync jobs queued, try again later");
+    }
+
+    private ResponseEntity<SyncJobStatus> accepted(SyncJobStatus status) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/jobs/" + status.getJobId()))
+                .body(status);
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.integration.controller;
+
+import com.example.integration.dto.ScheduleStatus;
+import com.example.integration.service.SyncScheduler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/schedules")
+@RequiredArgsConstructor
+public class SyncScheduleController {
+
+    private final SyncScheduler syncScheduler;
+
+    /**
+     * Get next and last run times of all scheduled systems
+     */
+    @GetMapping
+    public ResponseEntity<List<ScheduleStatus>> getSchedules() {
+        return ResponseEntity.ok(syncScheduler.getSchedules());
+    }
+}
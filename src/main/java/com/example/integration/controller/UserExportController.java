@@ -0,0 +1,79 @@
+package com.example.integration.controller;
+
+import com.example.integration.model.UserField;
+import com.example.integration.service.ExportFormat;
+import com.example.integration.service.UserExportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+@RestController
+@RequestMapping("/api/export")
+@RequiredArgsConstructor
+public class UserExportController {
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private final UserExportService userExportService;
+
+    /**
+     * Export staged users as NDJSON (default) or CSV, streamed row by row from the
+     * staging store. Gzip-compressed when the client sends Accept-Encoding: gzip.
+     */
+    @GetMapping("/users")
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @RequestParam(required = false) String systemName,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fetchedFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fetchedTo,
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        ExportFormat exportFormat = ExportFormat.parse(format);
+        Set<UserField> selected = UserField.parse(fields);
+        if (fetchedFrom != null && fetchedTo != null && !fetchedFrom.isBefore(fetchedTo)) {
+            throw new IllegalArgumentException("fetchedFrom must be before fetchedTo");
+        }
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+
+        StreamingResponseBody body = out -> {
+            if (!gzip) {
+                userExportService.export(systemName, fetchedFrom, fetchedTo, selected, exportFormat, out);
+                return;
+            }
+            GZIPOutputStream compressed = new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+            userExportService.export(systemName, fetchedFrom, fetchedTo, selected, exportFormat, compressed);
+            compressed.finish();
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.mediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename((systemName != null ? systemName : "users") + "." + exportFormat.extension())
+                        .build()
+                        .toString())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Reject unknown formats, fields and bad time ranges with 400
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleInvalidRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+}
@@ -1,32 +1,67 @@
 package com.example.integration.controller;
 
+import com.example.integration.dto.CacheStats;
+import com.example.integration.dto.UserPage;
 import com.example.integration.dto.UserSyncResponse;
 import com.example.integration.model.ApiConfiguration;
-import com.example.integration.model.User;
+import com.example.integration.model.UserField;
 import com.example.integration.repository.ApiConfigurationRepository;
+import com.example.integration.service.ApiConfigurationCache;
+import com.example.integration.service.ExportFormat;
+import com.example.integration.service.NothingSpooledException;
+import com.example.integration.service.SyncInProgressException;
+import com.example.integration.service.SyncJobService;
+import com.example.integration.service.UserExportService;
 import com.example.integration.service.UserSyncService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api")
 @RequiredArgsConstructor
 public class UserSyncController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     private final UserSyncService userSyncService;
     private final ApiConfigurationRepository configRepository;
+    private final ApiConfigurationCache configCache;
+    private final SyncJobService syncJobService;
+    private final UserExportService userExportService;
 
     /**
-     * Sync users from a specific system
+     * Sync users from a specific system. The request thread is released while the
+     * sync runs; the response is written once it completes.
      */
     @PostMapping("/sync/{systemName}")
-    public ResponseEntity<UserSyncResponse> syncUsers(@PathVariable String systemName) {
-        UserSyncResponse response = userSyncService.syncUsersFromSystem(systemName);
-        
+    public Mono<ResponseEntity<UserSyncResponse>> syncUsers(@PathVariable String systemName) {
+        return userSyncService.syncUsersFromSystemReactive(systemName)
+                .map(response -> {
+                    HttpStatus status = response.isSuccess() ? HttpStatus.OK : HttpStatus.INTERNAL_SERVER_ERROR;
+                    return ResponseEntity.status(status).body(response);
+                });
+    }
+
+    /**
+     * Map a system's spooled raw pages again with its current field mappings,
+     * without calling the external API
+     */
+    @PostMapping("/sync/{systemName}/remap")
+    public ResponseEntity<UserSyncResponse> remapUsers(@PathVariable String systemName) {
+        if (syncJobService.isSystemBusy(systemName)) {
+            throw new SyncInProgressException(systemName);
+        }
+        UserSyncResponse response = userSyncService.remapUsersFromSpool(systemName);
+
         HttpStatus status = response.isSuccess() ? HttpStatus.OK : HttpStatus.INTERNAL_SERVER_ERROR;
         return ResponseEntity.status(status).body(response);
     }
@@ -35,25 +70,57 @@ public class UserSyncController {
      * Sync users from all configured systems
      */
     @PostMapping("/sync/all")
-    public ResponseEntity<List<UserSyncResponse>> syncAllUsers() {
-        List<UserSyncResponse> responses = userSyncService.syncUsersFromAllSystems();
-        return ResponseEntity.ok(responses);
+    public Flux<UserSyncResponse> syncAllUsers() {
+        return userSyncService.syncUsersFromAllSystemsReactive();
     }
 
     /**
-     * Get all users from temporary storage
+     * Get users from temporary storage, one keyset page at a time. Returns a page
+     * object, not the plain list of all users this endpoint used to return.
      */
     @GetMapping("/users")
-    public ResponseEntity<List<User>> getAllUsers() {
-        return ResponseEntity.ok(userSyncService.getAllUsers());
+    public ResponseEntity<UserPage> getAllUsers(
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String fields) {
+        return ResponseEntity.ok(userSyncService.getUserPage(null, limit, cursor, UserField.parse(fields)));
     }
 
     /**
-     * Get users from a specific system
+     * Get users from a specific system, one keyset page at a time
      */
     @GetMapping("/users/{systemName}")
-    public ResponseEntity<List<User>> getUsersBySystem(@PathVariable String systemName) {
-        return ResponseEntity.ok(userSyncService.getUsersBySystem(systemName));
+    public ResponseEntity<UserPage> getUsersBySystem(
+            @PathVariable String systemName,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String fields) {
+        return ResponseEntity.ok(userSyncService.getUserPage(systemName, limit, cursor, UserField.parse(fields)));
+    }
+
+    /**
+     * Stream all users as newline-delimited JSON
+     */
+    @GetMapping(value = "/users", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAllUsers(@RequestParam(required = false) String fields) {
+        return streamUsers(null, UserField.parse(fields));
+    }
+
+    /**
+     * Stream users from a specific system as newline-delimited JSON
+     */
+    @GetMapping(value = "/users/{systemName}", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamUsersBySystem(
+            @PathVariable String systemName,
+            @RequestParam(required = false) String fields) {
+        return streamUsers(systemName, UserField.parse(fields));
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamUsers(String systemName, Set<UserField> fields) {
+        StreamingResponseBody body = out -> userExportService.export(systemName, null, null, fields, ExportFormat.NDJSON, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
     }
 
     /**
@@ -105,7 +172,9 @@ public class UserSyncController {
      */
     @PostMapping("/configurations")
     public ResponseEntity<ApiConfiguration> saveConfiguration(@RequestBody ApiConfiguration config) {
+        userSyncService.validateConfiguration(config);
         ApiConfiguration saved = configRepository.save(config);
+        configCache.evictAll();
         return ResponseEntity.status(HttpStatus.CREATED).body(saved);
     }
 
@@ -115,6 +184,33 @@ public class UserSyncController {
     @DeleteMapping("/configurations/{id}")
     public ResponseEntity<String> deleteConfiguration(@PathVariable Long id) {
         configRepository.deleteById(id);
+        configCache.evictAll();
         return ResponseEntity.ok("Configuration deleted");
     }
+
+    /**
+     * Get hit/miss statistics of the configuration cache
+     */
+    @GetMapping("/configurations/cache/stats")
+    public ResponseEntity<CacheStats> getConfigurationCacheStats() {
+        return ResponseEntity.ok(configCache.stats());
+    }
+
+    /**
+     * Reject invalid configurations and query parameters with 400 instead of a server error
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleInvalidConfiguration(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    @ExceptionHandler(SyncInProgressException.class)
+    public ResponseEntity<String> handleSyncInProgress(SyncInProgressException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+    }
+
+    @ExceptionHandler(NothingSpooledException.class)
+    public ResponseEntity<String> handleNothingSpooled(NothingSpooledException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+    }
 }
@@ -0,0 +1,54 @@
+package com.example.integration.controller;
+
+import com.example.integration.dto.WebhookIngestResponse;
+import com.example.integration.service.WebhookIngestService;
+import com.example.integration.service.WebhookSignatureException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("/api/webhooks")
+@RequiredArgsConstructor
+public class WebhookController {
+
+    private final WebhookIngestService webhookIngestService;
+
+    /**
+     * Receive user changes pushed by a system, signed with its webhook secret. The
+     * payload is mapped with the system's field mappings right away and written with
+     * the next flush.
+     */
+    @PostMapping("/{systemName}")
+    public ResponseEntity<WebhookIngestResponse> receive(
+            @PathVariable String systemName,
+            @RequestHeader(name = WebhookIngestService.SIGNATURE_HEADER, required = false) String signature,
+            InputStream payload) {
+        return ResponseEntity.accepted().body(webhookIngestService.ingest(systemName, payload, signature));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    @ExceptionHandler(WebhookSignatureException.class)
+    public ResponseEntity<String> handleBadSignature(WebhookSignatureException e) {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
+    }
+
+    /**
+     * Too many updates are waiting to be written - the vendor should redeliver later
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<String> handleBufferFull(RejectedExecutionException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Too many webhook updates pending, try again later");
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.integration.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ScheduleStatus {
+
+    private String systemName;
+    private String schedule;     // e.g. "every PT15M" or "cron 0 0 * * * *"
+    private Instant nextRunAt;   // Including jitter
+    private Instant lastRunAt;
+    private String lastJobId;
+    private String lastJobState;
+    private int skippedRuns;     // Runs skipped because the previous sync was still running
+}
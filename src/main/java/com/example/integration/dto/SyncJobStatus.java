@@ -0,0 +1,25 @@
+package com.example.integration.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SyncJobStatus {
+
+    private String jobId;
+    private String target; // System name, or "all"
+    private String state;  // QUEUED, RUNNING, COMPLETED, FAILED or CANCELLED
+    private Instant submittedAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private List<SyncProgressSnapshot> progress;
+    private List<UserSyncResponse> results; // Set once the job has finished
+}
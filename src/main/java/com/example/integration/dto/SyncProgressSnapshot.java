@@ -0,0 +1,22 @@
+package com.example.integration.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SyncProgressSnapshot {
+
+    private String systemName;
+    private String phase;
+    private long pagesFetched;
+    private long recordsFetched;
+    private long recordsMapped;
+    private long recordsPersisted;
+    private long elapsedMs;
+    private double recordsPerSecond; // Persisted records per second since the sync started
+}
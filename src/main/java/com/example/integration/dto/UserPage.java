@@ -0,0 +1,20 @@
+package com.example.integration.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserPage {
+
+    private List<Map<String, Object>> users;
+    private int count;
+    private String nextCursor; // Pass as ?cursor= to get the next page, null on the last page
+}
@@ -16,7 +16,12 @@ public class UserSyncResponse {
     private String systemName;
     private int usersFetched;
     private int usersStored;
+    private int usersInserted;
+    private int usersUpdated;
+    private int usersUnchanged;
+    private int usersDeleted;
     private boolean success;
+    private long durationMs;
     private String message;
     private List<String> errors;
 }
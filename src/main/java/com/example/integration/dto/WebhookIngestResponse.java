@@ -0,0 +1,25 @@
+package com.example.integration.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of one webhook delivery. Accepted users are written with the next flush.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WebhookIngestResponse {
+
+    private String systemName;
+    private int usersReceived;
+    private int usersAccepted;
+    private int usersCoalesced; // Replaced a pending update of the same user
+    private int usersFailed;
+    private List<String> errors;
+}
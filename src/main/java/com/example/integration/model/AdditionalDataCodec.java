@@ -0,0 +1,111 @@
+package com.example.integration.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Binary form of {@link User#getAdditionalData()}: the raw record as Smile (binary
+ * JSON with back-references for repeated field names), deflated once it is large
+ * enough for compression to pay off.
+ * <p>
+ * The first byte tells the two apart, so the threshold can change without
+ * invalidating rows that are already stored.
+ */
+public final class AdditionalDataCodec {
+
+    private static final byte PLAIN = 0;
+    private static final byte DEFLATED = 1;
+
+    /**
+     * Smile payloads below this size are stored as is
+     */
+    private static final int COMPRESSION_THRESHOLD = 256;
+
+    private static final SmileMapper SMILE = new SmileMapper();
+
+    // Deflater state is a few hundred KB of native memory, so each thread keeps one
+    private static final ThreadLocal<Deflater> DEFLATERS =
+            ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+
+    private AdditionalDataCodec() {
+    }
+
+    /**
+     * Encode a record straight from the tokens it was parsed from
+     */
+    public static byte[] encode(TokenBuffer tokens) {
+        ByteArrayOutputStream smile = new ByteArrayOutputStream(COMPRESSION_THRESHOLD);
+        try (JsonGenerator generator = SMILE.getFactory().createGenerator(smile)) {
+            tokens.serialize(generator);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode additional data", e);
+        }
+        return pack(smile.toByteArray());
+    }
+
+    /**
+     * Encode an already materialized value, e.g. a map of record fields
+     */
+    public static byte[] encode(Object value) {
+        try {
+            return pack(SMILE.writeValueAsBytes(value));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode additional data", e);
+        }
+    }
+
+    /**
+     * Decode stored additional data back into a JSON tree
+     *
+     * @return The record, or null if nothing was stored
+     */
+    public static JsonNode decode(byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        InputStream in = new ByteArrayInputStream(data, 1, data.length - 1);
+        if (data[0] == DEFLATED) {
+            in = new InflaterInputStream(in);
+        } else if (data[0] != PLAIN) {
+            throw new IllegalArgumentException("Unknown additional data format: " + data[0]);
+        }
+        try (InputStream smile = in) {
+            return SMILE.readTree(smile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode additional data", e);
+        }
+    }
+
+    private static byte[] pack(byte[] smile) {
+        ByteArrayOutputStream packed = new ByteArrayOutputStream(Math.min(smile.length, 4096) + 1);
+        if (smile.length < COMPRESSION_THRESHOLD) {
+            packed.write(PLAIN);
+            packed.writeBytes(smile);
+            return packed.toByteArray();
+        }
+
+        Deflater deflater = DEFLATERS.get();
+        deflater.reset();
+        packed.write(DEFLATED);
+        // The shared deflater must outlive the stream, so finish() rather than close()
+        try {
+            DeflaterOutputStream out = new DeflaterOutputStream(packed, deflater, 4096);
+            out.write(smile);
+            out.finish();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to compress additional data", e);
+        }
+        return packed.toByteArray();
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.integration.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -44,6 +45,40 @@ public class ApiConfiguration {
     @Column(columnDefinition = "TEXT")
     private String dataPath; // JSONPath to extract user list from response (e.g., "data.users")
 
+    @Column(columnDefinition = "TEXT")
+    private String pagination; // JSON pagination settings (see PaginationSettings), empty for single request
+
+    @Column(columnDefinition = "TEXT")
+    private String transport; // JSON transport profile (see TransportSettings), empty for defaults
+
+    @Column(columnDefinition = "TEXT")
+    private String rateLimit; // JSON throttling/retry settings (see RateLimitSettings), empty for defaults
+
+    @Column(columnDefinition = "TEXT")
+    private String enrichment; // JSON per-record detail request (see EnrichmentSettings), empty for none
+
+    @Column
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+    private String webhookSecret; // Key vendors sign webhook payloads with (HMAC-SHA256); webhooks are refused without one
+
+    @Column
+    private String webhookDataPath; // Path to the user record(s) in webhook payloads (e.g. "payload"), empty for the payload itself
+
+    @Column
+    private String watermarkParam; // Query param that receives the last successful sync time (e.g. "updated_since")
+
+    @Column
+    private Integer responseCacheTtlSeconds; // Reuse list responses this long, then revalidate them via ETag/Last-Modified; empty for no cache
+
+    @Column
+    private Integer syncTimeoutSeconds; // Overrides integration.sync.system-timeout for this system
+
+    @Column
+    private Integer syncIntervalSeconds; // Sync automatically every N seconds (or use syncCron)
+
+    @Column
+    private String syncCron; // Spring cron expression for automatic syncs, e.g. "0 0 */2 * * *"
+
     @Column(nullable = false)
     private Boolean active = true;
 
@@ -0,0 +1,42 @@
+package com.example.integration.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Detail request made for the records of an {@link ApiConfiguration} whose list
+ * endpoint only returns IDs or summaries, stored as JSON in its {@code enrichment}
+ * column, e.g. {@code {"url":"/users/{id}","dataPath":"resource","mergeInto":"details"}}.
+ * <p>
+ * Templates take {@code {field.path}} placeholders from the listed record. With a
+ * {@code batchSize} above 1, records are looked up in groups instead and templates
+ * take {@code {ids}} (comma separated) or {@code {idsJson}} (JSON array) of their
+ * {@code idField} values. {@code {+...}} inserts a value without encoding it.
+ */
+@Data
+@NoArgsConstructor
+public class EnrichmentSettings {
+
+    // Request template: URL (absolute, or relative to the API URL), method and optional body
+    private String url;
+    private String httpMethod = "GET";
+    private String body;
+
+    // Path to the detail object (or, for batches, the array of them) in the response
+    private String dataPath;
+
+    // Record field that receives the details; null merges them into the record itself
+    private String mergeInto;
+
+    // Detail requests in flight at once, per sync
+    private int concurrency = 4;
+
+    // Records per batch-read request (1 for one request per record), matched back to
+    // the records by idField in the record and responseIdField in each result
+    private int batchSize = 1;
+    private String idField;
+    private String responseIdField;
+
+    // Keep records whose details could not be fetched as listed instead of failing the sync
+    private boolean skipFailed = false;
+}
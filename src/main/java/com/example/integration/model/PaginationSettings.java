@@ -0,0 +1,57 @@
+package com.example.integration.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Pagination settings of an {@link ApiConfiguration}, stored as JSON in its
+ * {@code pagination} column, e.g.
+ * {@code {"type":"cursor","cursorPath":"paging.next.after","cursorParam":"after"}}.
+ * Unknown keys, such as settings of older versions, are ignored.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+@NoArgsConstructor
+public class PaginationSettings {
+
+    private Type type = Type.NONE;
+
+    // CURSOR: response field holding the next cursor and the query param it is sent back in
+    private String cursorPath;
+    private String cursorParam = "cursor";
+
+    // NEXT_URL: response field holding the (possibly relative) URL of the next page
+    private String nextUrlPath;
+
+    // OFFSET / PAGE_NUMBER: query params carrying the position
+    private String offsetParam = "offset";
+    private String pageParam = "page";
+    private int firstPage = 1;
+
+    // Optional page size query param, sent on every page request
+    private String limitParam;
+    private Integer pageSize;
+
+    // Safety cap on the number of pages fetched per sync
+    private Integer maxPages;
+
+    public boolean isPaginated() {
+        return type != Type.NONE;
+    }
+
+    public enum Type {
+        NONE,
+        CURSOR,       // HubSpot paging.next.after, Slack response_metadata.next_cursor
+        NEXT_URL,     // Salesforce nextRecordsUrl
+        OFFSET,       // offset/limit
+        PAGE_NUMBER,  // page/per_page
+        LINK_HEADER;  // RFC 8288 Link: <...>; rel="next" (GitHub, Shopify)
+
+        @JsonCreator
+        public static Type from(String value) {
+            return valueOf(value.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.integration.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Request throttling, retry and circuit breaker settings of an {@link ApiConfiguration},
+ * stored as JSON in its {@code rateLimit} column, e.g.
+ * {@code {"requestsPerSecond":10,"burst":20,"maxRetries":5}}
+ */
+@Data
+@NoArgsConstructor
+public class RateLimitSettings {
+
+    // Token bucket: sustained request rate (null for no limit) and requests allowed back to back
+    private Double requestsPerSecond;
+    private int burst = 1;
+
+    // Slow down on Retry-After / X-RateLimit-Remaining: 0 responses and halve the rate on 429
+    private boolean adaptive = true;
+
+    // Longest pause a vendor's rate limit headers can impose before a request
+    private int maxPauseSeconds = 300;
+
+    // Retries of 429, 5xx and connection errors, with jittered exponential backoff
+    private int maxRetries = 3;
+    private long initialBackoffMillis = 500;
+    private int maxBackoffSeconds = 30;
+
+    // Consecutive failed requests that open the circuit, and how long it stays open
+    private int circuitFailureThreshold = 5;
+    private int circuitOpenSeconds = 60;
+}
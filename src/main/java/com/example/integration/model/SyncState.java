@@ -0,0 +1,28 @@
+package com.example.integration.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Per-system sync bookkeeping, kept apart from {@link ApiConfiguration} so that
+ * recording a run does not count as a configuration change
+ */
+@Entity
+@Table(name = "system_sync_state")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SyncState {
+
+    @Id
+    private String systemName;
+
+    @Column
+    private Instant watermark; // Start time of the last successful sync, sent as the watermark param
+}
@@ -0,0 +1,48 @@
+package com.example.integration.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Which generation of a system's staged users readers see.
+ * <p>
+ * A user row belongs to the generation it was written in and, once superseded or
+ * deleted by a later one, records that generation as retired. Readers see rows
+ * written between {@code floor} and {@code published} that were not retired by
+ * then, so publishing a snapshot or clearing a system is a single row update.
+ */
+@Entity
+@Table(name = "system_generations")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SystemGeneration {
+
+    @Id
+    private String systemName;
+
+    @Column(nullable = false)
+    private long published; // Generation readers see
+
+    @Column(nullable = false)
+    private long latest; // Last generation handed out, published or not
+
+    @Column(name = "floor_generation", nullable = false)
+    private long floor; // Rows written before this generation were cleared
+
+    public static SystemGeneration initial(String systemName) {
+        return new SystemGeneration(systemName, 0, 0, 0);
+    }
+
+    /**
+     * Hand out the next generation
+     */
+    public long next() {
+        latest = Math.max(latest, published) + 1;
+        return latest;
+    }
+}
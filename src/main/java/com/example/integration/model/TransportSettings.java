@@ -0,0 +1,37 @@
+package com.example.integration.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * HTTP transport profile of an {@link ApiConfiguration}, stored as JSON in its
+ * {@code transport} column, e.g. {@code {"maxConnections":20,"http2":true}}.
+ * Each system gets its own connection pool, rebuilt when these settings change.
+ */
+@Data
+@NoArgsConstructor
+public class TransportSettings {
+
+    // Connection pool: size, idle/lifetime limits and background eviction of stale connections
+    private int maxConnections = 50;
+    private int maxIdleTimeSeconds = 30;
+    private int maxLifeTimeSeconds = 300;
+    private int evictIntervalSeconds = 60;
+
+    // Time to wait for a free pooled connection
+    private int pendingAcquireTimeoutSeconds = 45;
+
+    private int connectTimeoutSeconds = 5;
+
+    // Longest gap between reads of a response before it is failed
+    private int readTimeoutSeconds = 30;
+
+    // Negotiate HTTP/2 via ALPN on https hosts that support it, HTTP/1.1 otherwise
+    private boolean http2 = false;
+
+    // Send Accept-Encoding: gzip, deflate and decompress responses while streaming
+    private boolean compression = true;
+
+    // Largest (decompressed) response body accepted per request, null for no limit
+    private Long maxResponseBytes;
+}
@@ -5,11 +5,19 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "temporary_users")
+@Table(name = "temporary_users", indexes = {
+        // One row per user and generation (see SystemGeneration)
+        @Index(name = "idx_users_system_external", columnList = "system_name, external_id, generation", unique = true),
+        @Index(name = "idx_users_system_id", columnList = "system_name, id"), // Keyset pages per system
+        @Index(name = "idx_users_system_retired", columnList = "system_name, retired_generation")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -17,13 +25,14 @@ import java.time.LocalDateTime;
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "temporary_users_seq")
+    @SequenceGenerator(name = "temporary_users_seq", sequenceName = "temporary_users_seq", allocationSize = 500)
+    private Long id; // Pooled sequence so inserts can be JDBC-batched (IDENTITY disables batching)
 
-    @Column
+    @Column(name = "external_id")
     private String externalId; // ID from the external system
 
-    @Column(nullable = false)
+    @Column(name = "system_name", nullable = false)
     private String systemName; // Which system this user came from
 
     @Column
@@ -44,14 +53,50 @@ public class User {
     @Column
     private String schedulingUrl;
 
-    @Column(columnDefinition = "TEXT")
-    private String additionalData; // JSON string for any extra fields
+    @Basic(fetch = FetchType.LAZY) // Only loaded when read; needs the Hibernate bytecode enhancer
+    @JdbcTypeCode(SqlTypes.LONG32VARBINARY)
+    @Column(name = "additional_data")
+    @ToString.Exclude
+    private byte[] additionalData; // Raw record in AdditionalDataCodec form
+
+    @Column
+    private Long contentHash; // 64-bit hash of the raw record and mapped columns, unchanged rows are not rewritten
 
     @Column
-    private LocalDateTime fetchedAt;
+    private LocalDateTime fetchedAt; // When the data was fetched; set on write unless the writer knows better
+
+    @Column(nullable = false)
+    private long generation; // Generation this row was written in
+
+    @Column(name = "retired_generation")
+    private Long retiredGeneration; // Generation that superseded or deleted this row, null while current
 
     @PrePersist
     protected void onCreate() {
-        fetchedAt = LocalDateTime.now();
+        if (fetchedAt == null) {
+            fetchedAt = LocalDateTime.now();
+        }
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        if (fetchedAt == null) {
+            fetchedAt = LocalDateTime.now();
+        }
+    }
+
+    /**
+     * Copy the synced fields of a freshly mapped user onto this (managed) entity
+     */
+    public void updateFrom(User source) {
+        name = source.getName();
+        email = source.getEmail();
+        phoneNumber = source.getPhoneNumber();
+        timezone = source.getTimezone();
+        avatarUrl = source.getAvatarUrl();
+        schedulingUrl = source.getSchedulingUrl();
+        additionalData = source.getAdditionalData();
+        contentHash = source.getContentHash();
+        fetchedAt = source.getFetchedAt();
     }
 }
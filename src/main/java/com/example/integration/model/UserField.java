@@ -0,0 +1,68 @@
+package com.example.integration.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Fields of a staged {@link User} that read endpoints can select
+ */
+public enum UserField {
+    ID("id"),
+    EXTERNAL_ID("externalId"),
+    SYSTEM_NAME("systemName"),
+    NAME("name"),
+    EMAIL("email"),
+    PHONE_NUMBER("phoneNumber"),
+    TIMEZONE("timezone"),
+    AVATAR_URL("avatarUrl"),
+    SCHEDULING_URL("schedulingUrl"),
+    ADDITIONAL_DATA("additionalData"),
+    CONTENT_HASH("contentHash"),
+    FETCHED_AT("fetchedAt");
+
+    public static final Set<UserField> ALL = Collections.unmodifiableSet(EnumSet.allOf(UserField.class));
+
+    /**
+     * Fields returned when none are requested - additionalData is only decoded on request
+     */
+    public static final Set<UserField> DEFAULT = Collections.unmodifiableSet(EnumSet.complementOf(EnumSet.of(ADDITIONAL_DATA)));
+
+    private final String attribute;
+
+    UserField(String attribute) {
+        this.attribute = attribute;
+    }
+
+    /**
+     * Entity attribute name, also used as the JSON property name
+     */
+    public String attribute() {
+        return attribute;
+    }
+
+    /**
+     * Parse a comma-separated field list such as "id,name,email". The id is always
+     * included because keyset pagination needs it for the next cursor.
+     *
+     * @throws IllegalArgumentException if a field is unknown
+     */
+    public static Set<UserField> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return DEFAULT;
+        }
+        Set<UserField> selected = EnumSet.of(ID);
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            selected.add(Arrays.stream(values())
+                    .filter(field -> field.attribute.equalsIgnoreCase(trimmed))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown user field: " + trimmed)));
+        }
+        return selected;
+    }
+}
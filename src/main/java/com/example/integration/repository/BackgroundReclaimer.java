@@ -0,0 +1,62 @@
+package com.example.integration.repository;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Deletes the rows a store's readers can no longer see on a background thread, so
+ * publishing a snapshot or clearing a system only has to swap generations.
+ * <p>
+ * At most one pass per system is queued; a request that arrives while a pass runs
+ * queues another, since the pass may already have gone past the new garbage.
+ */
+@Slf4j
+final class BackgroundReclaimer implements AutoCloseable {
+
+    private final Consumer<String> reclaim;
+    private final ExecutorService executor;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    BackgroundReclaimer(String threadName, Consumer<String> reclaim) {
+        this.reclaim = reclaim;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queue a pass over the system's rows unless one is already waiting
+     */
+    void schedule(String systemName) {
+        if (!pending.add(systemName)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                pending.remove(systemName);
+                try {
+                    reclaim.accept(systemName);
+                } catch (Exception e) {
+                    // Readers do not see the rows either way; the next pass picks them up
+                    log.warn("Reclaiming superseded rows of {} failed", systemName, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(systemName);
+            log.debug("Not reclaiming rows of {}, store is shutting down", systemName);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
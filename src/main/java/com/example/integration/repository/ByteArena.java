@@ -0,0 +1,61 @@
+package com.example.integration.repository;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only storage for variable-length row data, in chunks that live either on
+ * the Java heap or off-heap in direct buffers. An address packs the chunk index
+ * into the upper and the offset into the lower 32 bits.
+ * <p>
+ * All reads are absolute, so concurrent readers need no copy of the buffer state.
+ * Appends are guarded by the owning store's lock.
+ */
+final class ByteArena {
+
+    private final boolean offHeap;
+    private final int chunkSize;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private ByteBuffer current;
+    private int position;
+    private long bytesUsed;
+
+    ByteArena(boolean offHeap, int chunkSize) {
+        this.offHeap = offHeap;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Copy the bytes into the arena
+     *
+     * @return Address of the copy
+     */
+    long append(byte[] bytes, int length) {
+        if (current == null || current.capacity() - position < length) {
+            // Records larger than a chunk get a chunk of their own
+            current = offHeap
+                    ? ByteBuffer.allocateDirect(Math.max(chunkSize, length))
+                    : ByteBuffer.allocate(Math.max(chunkSize, length));
+            chunks.add(current);
+            position = 0;
+        }
+        current.put(position, bytes, 0, length);
+        long address = ((long) (chunks.size() - 1) << 32) | position;
+        position += length;
+        bytesUsed += length;
+        return address;
+    }
+
+    ByteBuffer chunk(long address) {
+        return chunks.get((int) (address >>> 32));
+    }
+
+    static int offset(long address) {
+        return (int) address;
+    }
+
+    long bytesUsed() {
+        return bytesUsed;
+    }
+}
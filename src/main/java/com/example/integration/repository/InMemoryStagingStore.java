@@ -0,0 +1,892 @@
+package com.example.integration.repository;
+
+import com.example.integration.config.IntegrationProperties;
+import com.example.integration.model.AdditionalDataCodec;
+import com.example.integration.model.User;
+import com.example.integration.model.UserField;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Columnar in-memory staging for "fetch, look, clear" runs that do not need the
+ * users to survive a restart.
+ * <p>
+ * Every column is a primitive array indexed by row, rows are kept in id order so
+ * keyset pages are a binary search plus a scan. {@code systemName} and
+ * {@code timezone} are dictionary-encoded; the remaining strings and the raw record
+ * are packed into one blob per row in a {@link ByteArena}, on or off the heap.
+ * Lookups by (systemName, externalId) go through an open-addressing index of row
+ * numbers, so no key objects are kept per user.
+ * <p>
+ * Deletes and updates leave dead rows and blobs behind; they are compacted away
+ * once they make up more than half of the store.
+ * <p>
+ * Snapshot generations work as in the JPA backend: every row records the generation
+ * it was written in and the one that retired it, and per system the published
+ * generation and floor decide which rows readers see. Generations of discarded or
+ * interrupted snapshots are marked abandoned, which hides their rows and undoes
+ * their retirements at once. Publishing, clearing and discarding therefore only
+ * touch per-system state; the rows they hid are deleted by a background pass that
+ * takes the lock one slice of rows at a time.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "integration.staging", name = "store", havingValue = "memory")
+public class InMemoryStagingStore implements StagingStore {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int STREAM_BATCH_SIZE = 500;
+    private static final int MIN_COMPACTION_ROWS = 4096;
+    private static final long MIN_COMPACTION_BYTES = 16L << 20;
+    private static final int NO_ROW = -1;
+    private static final long NOT_RETIRED = Long.MAX_VALUE;
+    private static final int RECLAIM_SLICE_ROWS = 8192;
+    private static final long[] NONE_ABANDONED = new long[0];
+
+    // Blob layout: a length-prefixed value per field, -1 for null
+    private static final int EXTERNAL_ID = 0;
+    private static final int NAME = 1;
+    private static final int EMAIL = 2;
+    private static final int PHONE_NUMBER = 3;
+    private static final int AVATAR_URL = 4;
+    private static final int SCHEDULING_URL = 5;
+    private static final int ADDITIONAL_DATA = 6;
+    private static final int BLOB_FIELDS = 7;
+
+    private final boolean offHeap;
+    private final int chunkSize;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final StringDictionary systems = new StringDictionary();
+    private final StringDictionary timezones = new StringDictionary();
+    private ByteArena arena;
+
+    private long[] ids;
+    private int[] systemCodes;
+    private int[] timezoneCodes;
+    private long[] contentHashes;
+    private long[] fetchedAt; // Epoch millis of the local date-time, as the JPA backend stores it
+    private long[] blobs;
+    private int[] blobLengths;
+    private int[] keyHashes;
+    private long[] generations;
+    private long[] retiredGenerations;
+    private BitSet keyed;
+    private BitSet nullHashes;
+    private BitSet deleted;
+    private int rowCount;
+    private int deletedCount;
+    private long garbageBytes;
+    private long nextId = 1;
+    private long layout; // Bumped whenever rows move or the store is reset
+    private long resets;
+
+    // Generation state per system code: published, last handed out, and floor
+    private long[] publishedGenerations;
+    private long[] latestGenerations;
+    private long[] floorGenerations;
+    // Abandoned generations per system code as closed [from, to] pairs, not yet reclaimed
+    private long[][] abandonedGenerations;
+
+    // Row + 1 per slot, 0 = empty; deleted rows stay until the next rebuild
+    private int[] slots;
+    private int indexed;
+
+    private final BackgroundReclaimer reclaimer = new BackgroundReclaimer("staging-reclaim", this::reclaim);
+
+    public InMemoryStagingStore(IntegrationProperties properties) {
+        this.offHeap = properties.getStaging().isOffHeap();
+        this.chunkSize = Math.toIntExact(properties.getStaging().getArenaChunkSize().toBytes());
+        reset();
+        log.info("Staging users in memory ({} arena chunks of {} bytes)", offHeap ? "off-heap" : "heap", chunkSize);
+    }
+
+    @Override
+    public UpsertResult upsertAll(String systemName, long generation, List<User> users) {
+        // Last record wins when an external ID shows up twice in one chunk
+        Map<String, User> byExternalId = new LinkedHashMap<>();
+        List<User> withoutExternalId = new ArrayList<>();
+        for (User user : users) {
+            if (user.getExternalId() == null) {
+                withoutExternalId.add(user);
+            } else {
+                byExternalId.put(user.getExternalId(), user);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            int systemCode = encodeSystem(systemName);
+            boolean live = generation == LIVE;
+            if (!live) {
+                checkOpen(systemName, systemCode, generation);
+            }
+            long asOf = live ? publishedGenerations[systemCode] : generation;
+            // A plain write while a snapshot is being built goes into the snapshot as well,
+            // or publishing it would undo the write or leave a second row for the user
+            long open = live && isOpen(systemCode) ? latestGenerations[systemCode] : LIVE;
+            long now = epochMillis(LocalDateTime.now());
+            int inserted = 0;
+            int updated = 0;
+            int unchanged = 0;
+            for (User user : byExternalId.values()) {
+                byte[] externalId = user.getExternalId().getBytes(StandardCharsets.UTF_8);
+                int keyHash = keyHash(systemCode, externalId);
+                int row = find(systemCode, externalId, keyHash, asOf);
+                int snapshotRow = open == LIVE ? NO_ROW : find(systemCode, externalId, keyHash, open);
+                boolean ownSnapshotRow = snapshotRow != NO_ROW && snapshotRow != row;
+
+                if (row != NO_ROW && isNewer(row, user)) {
+                    // Replayed data older than what a later write stored
+                    unchanged++;
+                    continue;
+                }
+
+                if (row == NO_ROW) {
+                    int appended = append(systemCode, user, externalId, keyHash, now, asOf);
+                    if (ownSnapshotRow) {
+                        // The snapshot wrote the user first; its row below takes this write
+                        retiredGenerations[appended] = open;
+                    }
+                    inserted++;
+                } else if (isUnchanged(row, user)) {
+                    unchanged++;
+                } else if (live || generations[row] == asOf) {
+                    garbageBytes += blobLengths[row];
+                    write(row, user, externalId, now);
+                    updated++;
+                } else {
+                    // Readers keep seeing the published row until the snapshot is published
+                    retiredGenerations[row] = asOf;
+                    append(systemCode, user, externalId, keyHash, now, asOf);
+                    updated++;
+                }
+
+                if (ownSnapshotRow) {
+                    if (!isUnchanged(snapshotRow, user)) {
+                        garbageBytes += blobLengths[snapshotRow];
+                        write(snapshotRow, user, externalId, now);
+                    }
+                } else if (open != LIVE && snapshotRow == NO_ROW && row != NO_ROW) {
+                    // The snapshot retired the user; the later write brings it back
+                    append(systemCode, user, externalId, keyHash, now, open);
+                }
+            }
+            for (User user : withoutExternalId) {
+                append(systemCode, user, null, 0, now, asOf);
+                inserted++;
+            }
+            compactIfNeeded();
+            return new UpsertResult(inserted, updated, unchanged);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int deleteMissing(String systemName, long generation, Set<String> seenExternalIds) {
+        lock.writeLock().lock();
+        try {
+            int systemCode = systems.lookup(systemName);
+            if (systemCode == StringDictionary.NULL) {
+                return 0;
+            }
+            boolean live = generation == LIVE;
+            if (!live) {
+                checkOpen(systemName, systemCode, generation);
+            }
+            long asOf = live ? publishedGenerations[systemCode] : generation;
+            int removed = 0;
+            for (int row = 0; row < rowCount; row++) {
+                if (keyed.get(row) && systemCodes[row] == systemCode && isVisible(row, asOf)
+                        && !seenExternalIds.contains(externalId(row))) {
+                    if (live) {
+                        delete(row);
+                    } else {
+                        retiredGenerations[row] = generation;
+                    }
+                    removed++;
+                }
+            }
+            compactIfNeeded();
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long beginSnapshot(String systemName) {
+        lock.writeLock().lock();
+        try {
+            int systemCode = encodeSystem(systemName);
+            long published = publishedGenerations[systemCode];
+            // Leftovers of snapshots that were never published
+            if (abandon(systemCode, published + 1, latestGenerations[systemCode])) {
+                reclaimer.schedule(systemName);
+            }
+            latestGenerations[systemCode] = Math.max(latestGenerations[systemCode], published) + 1;
+            return latestGenerations[systemCode];
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void publishSnapshot(String systemName, long generation) {
+        lock.writeLock().lock();
+        try {
+            int systemCode = encodeSystem(systemName);
+            if (latestGenerations[systemCode] != generation) {
+                throw new IllegalStateException("Snapshot " + generation + " of " + systemName
+                        + " was superseded by generation " + latestGenerations[systemCode]);
+            }
+            if (contains(abandonedGenerations[systemCode], generation)) {
+                throw new IllegalStateException("Snapshot " + generation + " of " + systemName + " was discarded");
+            }
+            publishedGenerations[systemCode] = generation;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        reclaimer.schedule(systemName);
+    }
+
+    @Override
+    public void discardSnapshot(String systemName, long generation) {
+        lock.writeLock().lock();
+        try {
+            int systemCode = systems.lookup(systemName);
+            if (systemCode == StringDictionary.NULL || generation <= publishedGenerations[systemCode]
+                    || !abandon(systemCode, generation, generation)) {
+                return;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        reclaimer.schedule(systemName);
+    }
+
+    @Override
+    public List<Map<String, Object>> findPage(String systemName, Long afterId, int limit, Set<UserField> fields) {
+        return read(systemName, afterId, Long.MIN_VALUE, Long.MAX_VALUE, limit, List.copyOf(fields)).users();
+    }
+
+    @Override
+    public Stream<Map<String, Object>> streamAll(
+            String systemName,
+            LocalDateTime fetchedFrom,
+            LocalDateTime fetchedTo,
+            Set<UserField> fields) {
+        long from = fetchedFrom == null ? Long.MIN_VALUE : epochMillis(fetchedFrom);
+        long to = fetchedTo == null ? Long.MAX_VALUE : epochMillis(fetchedTo);
+        // Batches are keyset pages, so compactions between them do not skip or repeat users
+        List<UserField> columns = List.copyOf(fields);
+        return Stream.iterate(
+                        read(systemName, null, from, to, STREAM_BATCH_SIZE, columns),
+                        Objects::nonNull,
+                        batch -> batch.last() ? null : read(systemName, batch.lastId(), from, to, STREAM_BATCH_SIZE, columns))
+                .flatMap(batch -> batch.users().stream());
+    }
+
+    @Override
+    public void deleteAll() {
+        lock.writeLock().lock();
+        try {
+            reset();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteBySystemName(String systemName) {
+        lock.writeLock().lock();
+        try {
+            int systemCode = systems.lookup(systemName);
+            if (systemCode == StringDictionary.NULL) {
+                return;
+            }
+            long cleared = Math.max(latestGenerations[systemCode], publishedGenerations[systemCode]) + 1;
+            latestGenerations[systemCode] = cleared;
+            publishedGenerations[systemCode] = cleared;
+            floorGenerations[systemCode] = cleared;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        reclaimer.schedule(systemName);
+    }
+
+    /**
+     * Rows not deleted, including ones readers no longer see that no reclaim pass has
+     * dropped yet
+     */
+    int rowCount() {
+        lock.readLock().lock();
+        try {
+            return rowCount - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reclaimer.close();
+    }
+
+    /**
+     * Up to limit users after the given id, fetched within [from, to) in epoch millis
+     */
+    private Batch read(String systemName, Long afterId, long from, long to, int limit, List<UserField> columns) {
+        lock.readLock().lock();
+        try {
+            int systemCode = StringDictionary.NULL;
+            if (systemName != null) {
+                systemCode = systems.lookup(systemName);
+                if (systemCode == StringDictionary.NULL) {
+                    return new Batch(List.of(), null, true);
+                }
+            }
+
+            List<Map<String, Object>> users = new ArrayList<>(Math.min(limit, STREAM_BATCH_SIZE));
+            Long lastId = null;
+            for (int row = firstRowAfter(afterId); row < rowCount && users.size() < limit; row++) {
+                if ((systemName != null && systemCodes[row] != systemCode)
+                        || !isVisible(row, publishedGenerations[systemCodes[row]])
+                        || fetchedAt[row] < from || fetchedAt[row] >= to) {
+                    continue;
+                }
+                users.add(toMap(columns, row));
+                lastId = ids[row];
+            }
+            return new Batch(users, lastId, users.size() < limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int firstRowAfter(Long afterId) {
+        if (afterId == null) {
+            return 0;
+        }
+        int found = Arrays.binarySearch(ids, 0, rowCount, afterId);
+        return found >= 0 ? found + 1 : -found - 1;
+    }
+
+    private Map<String, Object> toMap(List<UserField> columns, int row) {
+        Map<String, Object> user = new LinkedHashMap<>();
+        Object[] blob = null;
+        for (UserField column : columns) {
+            Object value = switch (column) {
+                case ID -> ids[row];
+                case SYSTEM_NAME -> systems.decode(systemCodes[row]);
+                case TIMEZONE -> timezones.decode(timezoneCodes[row]);
+                case CONTENT_HASH -> nullHashes.get(row) ? null : contentHashes[row];
+                case FETCHED_AT -> LocalDateTime.ofInstant(Instant.ofEpochMilli(fetchedAt[row]), ZoneOffset.UTC);
+                default -> {
+                    if (blob == null) {
+                        blob = readBlob(row);
+                    }
+                    yield blobValue(column, blob);
+                }
+            };
+            user.put(column.attribute(), value);
+        }
+        return user;
+    }
+
+    private static Object blobValue(UserField column, Object[] blob) {
+        return switch (column) {
+            case EXTERNAL_ID -> blob[EXTERNAL_ID];
+            case NAME -> blob[NAME];
+            case EMAIL -> blob[EMAIL];
+            case PHONE_NUMBER -> blob[PHONE_NUMBER];
+            case AVATAR_URL -> blob[AVATAR_URL];
+            case SCHEDULING_URL -> blob[SCHEDULING_URL];
+            case ADDITIONAL_DATA -> AdditionalDataCodec.decode((byte[]) blob[ADDITIONAL_DATA]);
+            default -> throw new IllegalStateException("Not a blob field: " + column);
+        };
+    }
+
+    /**
+     * @return The new row
+     */
+    private int append(int systemCode, User user, byte[] externalId, int keyHash, long now, long generation) {
+        ensureCapacity(rowCount + 1);
+        int row = rowCount++;
+        long id = nextId++;
+        user.setId(id);
+        user.setGeneration(generation);
+        ids[row] = id;
+        systemCodes[row] = systemCode;
+        keyHashes[row] = keyHash;
+        generations[row] = generation;
+        retiredGenerations[row] = NOT_RETIRED;
+        write(row, user, externalId, now);
+        if (externalId != null) {
+            keyed.set(row);
+            index(row);
+        }
+        return row;
+    }
+
+    private boolean isUnchanged(int row, User user) {
+        return user.getContentHash() != null && !nullHashes.get(row) && contentHashes[row] == user.getContentHash();
+    }
+
+    private boolean isNewer(int row, User user) {
+        return user.getFetchedAt() != null && fetchedAt[row] > epochMillis(user.getFetchedAt());
+    }
+
+    private void write(int row, User user, byte[] externalId, long now) {
+        timezoneCodes[row] = timezones.encode(user.getTimezone());
+        if (user.getContentHash() == null) {
+            nullHashes.set(row);
+        } else {
+            nullHashes.clear(row);
+            contentHashes[row] = user.getContentHash();
+        }
+        fetchedAt[row] = user.getFetchedAt() == null ? now : epochMillis(user.getFetchedAt());
+
+        byte[] blob = encodeBlob(user, externalId);
+        blobs[row] = arena.append(blob, blob.length);
+        blobLengths[row] = blob.length;
+    }
+
+    private void delete(int row) {
+        deleted.set(row);
+        deletedCount++;
+        garbageBytes += blobLengths[row];
+    }
+
+    private static byte[] encodeBlob(User user, byte[] externalId) {
+        byte[][] values = new byte[BLOB_FIELDS][];
+        values[EXTERNAL_ID] = externalId;
+        values[NAME] = utf8(user.getName());
+        values[EMAIL] = utf8(user.getEmail());
+        values[PHONE_NUMBER] = utf8(user.getPhoneNumber());
+        values[AVATAR_URL] = utf8(user.getAvatarUrl());
+        values[SCHEDULING_URL] = utf8(user.getSchedulingUrl());
+        values[ADDITIONAL_DATA] = user.getAdditionalData();
+
+        int size = BLOB_FIELDS * Integer.BYTES;
+        for (byte[] value : values) {
+            size += value == null ? 0 : value.length;
+        }
+        ByteBuffer blob = ByteBuffer.allocate(size);
+        for (byte[] value : values) {
+            if (value == null) {
+                blob.putInt(-1);
+            } else {
+                blob.putInt(value.length).put(value);
+            }
+        }
+        return blob.array();
+    }
+
+    /**
+     * Blob fields of a row: strings, except the raw additionalData bytes
+     */
+    private Object[] readBlob(int row) {
+        ByteBuffer chunk = arena.chunk(blobs[row]);
+        int position = ByteArena.offset(blobs[row]);
+        Object[] values = new Object[BLOB_FIELDS];
+        for (int field = 0; field < BLOB_FIELDS; field++) {
+            int length = chunk.getInt(position);
+            position += Integer.BYTES;
+            if (length < 0) {
+                continue;
+            }
+            byte[] value = new byte[length];
+            chunk.get(position, value);
+            position += length;
+            values[field] = field == ADDITIONAL_DATA ? value : new String(value, StandardCharsets.UTF_8);
+        }
+        return values;
+    }
+
+    /**
+     * External ID of a keyed row, read from the front of its blob without copying
+     * the other fields
+     */
+    private String externalId(int row) {
+        ByteBuffer chunk = arena.chunk(blobs[row]);
+        int position = ByteArena.offset(blobs[row]);
+        byte[] value = new byte[chunk.getInt(position)];
+        chunk.get(position + Integer.BYTES, value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private boolean externalIdEquals(int row, byte[] externalId) {
+        ByteBuffer chunk = arena.chunk(blobs[row]);
+        int position = ByteArena.offset(blobs[row]);
+        if (chunk.getInt(position) != externalId.length) {
+            return false;
+        }
+        position += Integer.BYTES;
+        for (int i = 0; i < externalId.length; i++) {
+            if (chunk.get(position + i) != externalId[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Row of the user that a reader of the given generation sees
+     */
+    private int find(int systemCode, byte[] externalId, int keyHash, long asOf) {
+        int mask = slots.length - 1;
+        for (int slot = keyHash & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int row = slots[slot] - 1;
+            if (keyHashes[row] == keyHash && systemCodes[row] == systemCode && isVisible(row, asOf)
+                    && externalIdEquals(row, externalId)) {
+                return row;
+            }
+        }
+        return NO_ROW;
+    }
+
+    private boolean isVisible(int row, long asOf) {
+        int systemCode = systemCodes[row];
+        if (deleted.get(row) || generations[row] < floorGenerations[systemCode] || generations[row] > asOf) {
+            return false;
+        }
+        long[] abandoned = abandonedGenerations[systemCode];
+        if (abandoned == NONE_ABANDONED) {
+            return retiredGenerations[row] > asOf;
+        }
+        // Rows of abandoned generations are gone, and so are their retirements
+        return !contains(abandoned, generations[row])
+                && (retiredGenerations[row] > asOf || contains(abandoned, retiredGenerations[row]));
+    }
+
+    /**
+     * Whether a snapshot of the system was begun and is neither published nor discarded
+     */
+    private boolean isOpen(int systemCode) {
+        long latest = latestGenerations[systemCode];
+        return latest > publishedGenerations[systemCode] && !contains(abandonedGenerations[systemCode], latest);
+    }
+
+    /**
+     * Snapshot writes must go to the open, not abandoned, generation; a late chunk of
+     * a cancelled run would otherwise leave rows behind that no pass reclaims
+     */
+    private void checkOpen(String systemName, int systemCode, long generation) {
+        if (generation != latestGenerations[systemCode] || generation <= publishedGenerations[systemCode]
+                || contains(abandonedGenerations[systemCode], generation)) {
+            throw new IllegalStateException("Snapshot " + generation + " of " + systemName + " is no longer open");
+        }
+    }
+
+    /**
+     * Mark the generations [from, to] of a system abandoned
+     *
+     * @return Whether there was anything to mark
+     */
+    private boolean abandon(int systemCode, long from, long to) {
+        if (from > to) {
+            return false;
+        }
+        long[] abandoned = abandonedGenerations[systemCode];
+        int last = abandoned.length - 2;
+        if (last >= 0 && from <= abandoned[last + 1] + 1 && to >= abandoned[last] - 1) {
+            abandoned = abandoned.clone();
+            abandoned[last] = Math.min(abandoned[last], from);
+            abandoned[last + 1] = Math.max(abandoned[last + 1], to);
+        } else {
+            abandoned = Arrays.copyOf(abandoned, abandoned.length + 2);
+            abandoned[last + 2] = from;
+            abandoned[last + 3] = to;
+        }
+        abandonedGenerations[systemCode] = abandoned;
+        return true;
+    }
+
+    private static boolean hasRange(long[] ranges, long from, long to) {
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (ranges[i] == from && ranges[i + 1] == to) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(long[] ranges, long generation) {
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (generation >= ranges[i] && generation <= ranges[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Delete a system's rows that readers can no longer see, holding the lock for one
+     * slice of rows at a time. A compaction between slices moves rows, so the pass
+     * starts over; the abandoned ranges it saw are forgotten once it went through
+     * every row.
+     */
+    private void reclaim(String systemName) {
+        long[] reclaiming;
+        long startLayout;
+        long startResets;
+        lock.readLock().lock();
+        try {
+            if (systems.lookup(systemName) == StringDictionary.NULL) {
+                return;
+            }
+            reclaiming = abandonedGenerations[systems.lookup(systemName)];
+            startLayout = layout;
+            startResets = resets;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        int dropped = 0;
+        int row = 0;
+        while (true) {
+            lock.writeLock().lock();
+            try {
+                if (resets != startResets) {
+                    return;
+                }
+                if (layout != startLayout) {
+                    row = 0;
+                    startLayout = layout;
+                }
+                int systemCode = systems.lookup(systemName);
+                long published = publishedGenerations[systemCode];
+                long floor = floorGenerations[systemCode];
+                long[] abandoned = abandonedGenerations[systemCode];
+                for (int end = Math.min(row + RECLAIM_SLICE_ROWS, rowCount); row < end; row++) {
+                    if (deleted.get(row) || systemCodes[row] != systemCode) {
+                        continue;
+                    }
+                    long retired = retiredGenerations[row];
+                    if (generations[row] < floor || contains(reclaiming, generations[row])) {
+                        delete(row);
+                        dropped++;
+                    } else if (retired != NOT_RETIRED && contains(reclaiming, retired)) {
+                        retiredGenerations[row] = NOT_RETIRED;
+                    } else if (retired <= published && !contains(abandoned, retired)) {
+                        delete(row);
+                        dropped++;
+                    }
+                }
+                if (row >= rowCount) {
+                    abandonedGenerations[systemCode] = without(abandoned, reclaiming);
+                    compactIfNeeded();
+                    log.debug("Dropped {} superseded rows of {}", dropped, systemName);
+                    return;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * The ranges that are not among the removed ones. Ranges are only ever appended
+     * or widened, so one that changed since the pass started is kept for the next.
+     */
+    private static long[] without(long[] ranges, long[] removed) {
+        long[] kept = new long[ranges.length];
+        int length = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (!hasRange(removed, ranges[i], ranges[i + 1])) {
+                kept[length++] = ranges[i];
+                kept[length++] = ranges[i + 1];
+            }
+        }
+        return length == 0 ? NONE_ABANDONED : Arrays.copyOf(kept, length);
+    }
+
+    private int encodeSystem(String systemName) {
+        int systemCode = systems.encode(systemName);
+        if (systemCode >= publishedGenerations.length) {
+            int capacity = Math.max(systemCode + 1, publishedGenerations.length * 2);
+            publishedGenerations = Arrays.copyOf(publishedGenerations, capacity);
+            latestGenerations = Arrays.copyOf(latestGenerations, capacity);
+            floorGenerations = Arrays.copyOf(floorGenerations, capacity);
+            int before = abandonedGenerations.length;
+            abandonedGenerations = Arrays.copyOf(abandonedGenerations, capacity);
+            Arrays.fill(abandonedGenerations, before, capacity, NONE_ABANDONED);
+        }
+        return systemCode;
+    }
+
+    private void index(int row) {
+        if ((indexed + 1) * 2 > slots.length) {
+            // The rebuild picks up the new row as well
+            rebuildIndex(slots.length * 2);
+        } else {
+            insertSlot(row);
+            indexed++;
+        }
+    }
+
+    private void rebuildIndex(int capacity) {
+        slots = new int[capacity];
+        indexed = 0;
+        for (int row = keyed.nextSetBit(0); row >= 0 && row < rowCount; row = keyed.nextSetBit(row + 1)) {
+            if (!deleted.get(row)) {
+                insertSlot(row);
+                indexed++;
+            }
+        }
+    }
+
+    private void insertSlot(int row) {
+        int mask = slots.length - 1;
+        int slot = keyHashes[row] & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = row + 1;
+    }
+
+    private static int keyHash(int systemCode, byte[] externalId) {
+        int hash = systemCode * 0x9E3779B9;
+        for (byte b : externalId) {
+            hash = 31 * hash + b;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private void compactIfNeeded() {
+        boolean manyDeleted = deletedCount >= MIN_COMPACTION_ROWS && deletedCount * 2L > rowCount;
+        boolean muchGarbage = garbageBytes >= MIN_COMPACTION_BYTES && garbageBytes * 2 > arena.bytesUsed();
+        if (manyDeleted || muchGarbage) {
+            compact();
+        }
+    }
+
+    /**
+     * Drop deleted rows and copy the live blobs into a fresh arena, keeping id order
+     */
+    private void compact() {
+        int before = rowCount;
+        ByteArena compacted = new ByteArena(offHeap, chunkSize);
+        BitSet compactedKeyed = new BitSet();
+        BitSet compactedNullHashes = new BitSet();
+        int live = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (deleted.get(row)) {
+                continue;
+            }
+            byte[] blob = new byte[blobLengths[row]];
+            arena.chunk(blobs[row]).get(ByteArena.offset(blobs[row]), blob);
+
+            ids[live] = ids[row];
+            systemCodes[live] = systemCodes[row];
+            timezoneCodes[live] = timezoneCodes[row];
+            contentHashes[live] = contentHashes[row];
+            fetchedAt[live] = fetchedAt[row];
+            blobs[live] = compacted.append(blob, blob.length);
+            blobLengths[live] = blobLengths[row];
+            keyHashes[live] = keyHashes[row];
+            generations[live] = generations[row];
+            retiredGenerations[live] = retiredGenerations[row];
+            compactedKeyed.set(live, keyed.get(row));
+            compactedNullHashes.set(live, nullHashes.get(row));
+            live++;
+        }
+
+        arena = compacted;
+        keyed = compactedKeyed;
+        nullHashes = compactedNullHashes;
+        deleted = new BitSet();
+        rowCount = live;
+        deletedCount = 0;
+        garbageBytes = 0;
+        layout++;
+        rebuildIndex(indexCapacity(live));
+        log.debug("Compacted staging store from {} to {} rows", before, live);
+    }
+
+    private void ensureCapacity(int rows) {
+        if (rows <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(rows, ids.length * 2);
+        ids = Arrays.copyOf(ids, capacity);
+        systemCodes = Arrays.copyOf(systemCodes, capacity);
+        timezoneCodes = Arrays.copyOf(timezoneCodes, capacity);
+        contentHashes = Arrays.copyOf(contentHashes, capacity);
+        fetchedAt = Arrays.copyOf(fetchedAt, capacity);
+        blobs = Arrays.copyOf(blobs, capacity);
+        blobLengths = Arrays.copyOf(blobLengths, capacity);
+        keyHashes = Arrays.copyOf(keyHashes, capacity);
+        generations = Arrays.copyOf(generations, capacity);
+        retiredGenerations = Arrays.copyOf(retiredGenerations, capacity);
+    }
+
+    private void reset() {
+        systems.clear();
+        timezones.clear();
+        arena = new ByteArena(offHeap, chunkSize);
+        ids = new long[INITIAL_CAPACITY];
+        systemCodes = new int[INITIAL_CAPACITY];
+        timezoneCodes = new int[INITIAL_CAPACITY];
+        contentHashes = new long[INITIAL_CAPACITY];
+        fetchedAt = new long[INITIAL_CAPACITY];
+        blobs = new long[INITIAL_CAPACITY];
+        blobLengths = new int[INITIAL_CAPACITY];
+        keyHashes = new int[INITIAL_CAPACITY];
+        generations = new long[INITIAL_CAPACITY];
+        retiredGenerations = new long[INITIAL_CAPACITY];
+        publishedGenerations = new long[16];
+        latestGenerations = new long[16];
+        floorGenerations = new long[16];
+        abandonedGenerations = new long[16][];
+        Arrays.fill(abandonedGenerations, NONE_ABANDONED);
+        keyed = new BitSet();
+        nullHashes = new BitSet();
+        deleted = new BitSet();
+        rowCount = 0;
+        deletedCount = 0;
+        garbageBytes = 0;
+        slots = new int[indexCapacity(INITIAL_CAPACITY)];
+        indexed = 0;
+        layout++;
+        resets++;
+    }
+
+    /**
+     * Power-of-two slot count keeping the index at most half full
+     */
+    private static int indexCapacity(int rows) {
+        return Integer.highestOneBit(Math.max(rows, INITIAL_CAPACITY) * 2 - 1) * 2;
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private record Batch(List<Map<String, Object>> users, Long lastId, boolean last) {
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.integration.repository;
+
+import com.example.integration.model.User;
+import com.example.integration.model.UserField;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Durable staging in the {@code temporary_users} table.
+ * <p>
+ * Publishing and clearing commit as a single generation swap; the rows that swap
+ * hid are bulk deleted afterwards on a background thread.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "integration.staging", name = "store", havingValue = "jpa", matchIfMissing = true)
+public class JpaStagingStore implements StagingStore {
+
+    private final UserRepository userRepository;
+    private final BackgroundReclaimer reclaimer;
+
+    public JpaStagingStore(UserRepository userRepository) {
+        this.userRepository = userRepository;
+        this.reclaimer = new BackgroundReclaimer("staging-reclaim", this::dropSuperseded);
+    }
+
+    @Override
+    public UpsertResult upsertAll(String systemName, long generation, List<User> users) {
+        return userRepository.upsertAll(systemName, generation, users);
+    }
+
+    @Override
+    public int deleteMissing(String systemName, long generation, Set<String> seenExternalIds) {
+        return userRepository.deleteMissing(systemName, generation, seenExternalIds);
+    }
+
+    @Override
+    public long beginSnapshot(String systemName) {
+        return userRepository.beginSnapshot(systemName);
+    }
+
+    @Override
+    public void publishSnapshot(String systemName, long generation) {
+        userRepository.publishSnapshot(systemName, generation);
+        reclaimAfterCommit(systemName);
+    }
+
+    @Override
+    public void discardSnapshot(String systemName, long generation) {
+        userRepository.discardSnapshot(systemName, generation);
+    }
+
+    @Override
+    public List<Map<String, Object>> findPage(String systemName, Long afterId, int limit, Set<UserField> fields) {
+        return userRepository.findPage(systemName, afterId, limit, fields);
+    }
+
+    @Override
+    public Stream<Map<String, Object>> streamAll(
+            String systemName,
+            LocalDateTime fetchedFrom,
+            LocalDateTime fetchedTo,
+            Set<UserField> fields) {
+        return userRepository.streamAll(systemName, fetchedFrom, fetchedTo, fields);
+    }
+
+    @Override
+    public void deleteAll() {
+        // One DELETE statement instead of loading and removing every entity
+        userRepository.deleteAllInBatch();
+    }
+
+    @Override
+    public void deleteBySystemName(String systemName) {
+        userRepository.clearSystem(systemName);
+        reclaimAfterCommit(systemName);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reclaimer.close();
+    }
+
+    /**
+     * The pass must see the new generation, so inside a caller's transaction it waits
+     * for the commit
+     */
+    private void reclaimAfterCommit(String systemName) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reclaimer.schedule(systemName);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                reclaimer.schedule(systemName);
+            }
+        });
+    }
+
+    private void dropSuperseded(String systemName) {
+        int dropped = userRepository.dropSuperseded(systemName);
+        log.debug("Dropped {} superseded rows of {}", dropped, systemName);
+    }
+}
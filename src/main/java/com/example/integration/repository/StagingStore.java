@@ -0,0 +1,115 @@
+package com.example.integration.repository;
+
+import com.example.integration.model.User;
+import com.example.integration.model.UserField;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Where synced users are staged between a fetch and the clear that follows it.
+ * <p>
+ * The backend is picked with {@code integration.staging.store}: {@code jpa} (the
+ * default) keeps users in the {@code temporary_users} table, {@code memory} keeps
+ * them in an in-process columnar store that skips entity management and JDBC but
+ * is lost on restart.
+ * <p>
+ * Readers only ever see the published generation of a system's users (see
+ * {@link com.example.integration.model.SystemGeneration}). Snapshot syncs write a
+ * new generation and publish it when they succeed; everything else writes
+ * {@link #LIVE}. A live write that lands while a snapshot is open is applied to the
+ * snapshot as well, so publishing it keeps the write.
+ */
+public interface StagingStore {
+
+    /**
+     * Generation argument for writes that readers see right away
+     */
+    long LIVE = -1;
+
+    /**
+     * Insert or update a chunk of users from one system. Users whose content hash
+     * did not change are left untouched, and so are users given with a
+     * {@code fetchedAt} older than that of their stored row, such as replayed ones.
+     */
+    default UpsertResult upsertAll(String systemName, List<User> users) {
+        return upsertAll(systemName, LIVE, users);
+    }
+
+    /**
+     * Insert or update a chunk of users in a snapshot started with
+     * {@link #beginSnapshot}, or {@link #LIVE}
+     */
+    UpsertResult upsertAll(String systemName, long generation, List<User> users);
+
+    /**
+     * Delete a system's users whose external ID was not seen in the last full sync
+     *
+     * @return Number of deleted users
+     */
+    default int deleteMissing(String systemName, Set<String> seenExternalIds) {
+        return deleteMissing(systemName, LIVE, seenExternalIds);
+    }
+
+    /**
+     * Delete users missing from a full sync in a snapshot, or {@link #LIVE}
+     *
+     * @return Number of deleted users
+     */
+    int deleteMissing(String systemName, long generation, Set<String> seenExternalIds);
+
+    /**
+     * Start a new generation of a system's users, seeded with the published one.
+     * Writes to it stay invisible to readers until {@link #publishSnapshot}. Leftovers
+     * of snapshots that were never published are dropped; one snapshot per system
+     * may be open at a time.
+     *
+     * @return The generation to write to
+     */
+    long beginSnapshot(String systemName);
+
+    /**
+     * Make a snapshot the generation readers see, in one atomic step. The rows it
+     * superseded are dropped in the background.
+     */
+    void publishSnapshot(String systemName, long generation);
+
+    /**
+     * Drop an unpublished snapshot, leaving the published generation as it was
+     */
+    void discardSnapshot(String systemName, long generation);
+
+    /**
+     * Keyset page of users ordered by id, starting after the given id, with only
+     * the selected fields
+     *
+     * @param systemName Only users of this system, or null for all systems
+     * @param afterId    Last id of the previous page, or null for the first page
+     */
+    List<Map<String, Object>> findPage(String systemName, Long afterId, int limit, Set<UserField> fields);
+
+    /**
+     * Stream users ordered by id without loading them all at once. Must be closed,
+     * and for the JPA backend consumed inside a transaction.
+     *
+     * @param systemName  Only users of this system, or null for all systems
+     * @param fetchedFrom Only users fetched at or after this time, or null
+     * @param fetchedTo   Only users fetched before this time, or null
+     */
+    Stream<Map<String, Object>> streamAll(
+            String systemName,
+            LocalDateTime fetchedFrom,
+            LocalDateTime fetchedTo,
+            Set<UserField> fields);
+
+    void deleteAll();
+
+    /**
+     * Clear a system's users. Readers stop seeing them at once; the rows are
+     * dropped in bulk in the background.
+     */
+    void deleteBySystemName(String systemName);
+}
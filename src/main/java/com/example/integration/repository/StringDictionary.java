@@ -0,0 +1,53 @@
+package com.example.integration.repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary encoding for low-cardinality string columns: each distinct value is
+ * stored once and rows keep its int code. Null is encoded as -1.
+ * <p>
+ * Not thread-safe; guarded by the owning store's lock.
+ */
+final class StringDictionary {
+
+    static final int NULL = -1;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * Code of the value, adding it to the dictionary if it is new
+     */
+    int encode(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            values.add(value);
+            codes.put(value, code);
+        }
+        return code;
+    }
+
+    /**
+     * Code of the value, or {@link #NULL} if it was never encoded
+     */
+    int lookup(String value) {
+        Integer code = value == null ? null : codes.get(value);
+        return code == null ? NULL : code;
+    }
+
+    String decode(int code) {
+        return code == NULL ? null : values.get(code);
+    }
+
+    void clear() {
+        codes.clear();
+        values.clear();
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.integration.repository;
+
+import com.example.integration.model.SyncState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SyncStateRepository extends JpaRepository<SyncState, String> {
+}
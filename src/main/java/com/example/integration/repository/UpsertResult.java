@@ -0,0 +1,17 @@
+package com.example.integration.repository;
+
+/**
+ * Row counts of one bulk upsert
+ */
+public record UpsertResult(int inserted, int updated, int unchanged) {
+
+    public static final UpsertResult EMPTY = new UpsertResult(0, 0, 0);
+
+    public int stored() {
+        return inserted + updated;
+    }
+
+    public UpsertResult plus(UpsertResult other) {
+        return new UpsertResult(inserted + other.inserted, updated + other.updated, unchanged + other.unchanged);
+    }
+}
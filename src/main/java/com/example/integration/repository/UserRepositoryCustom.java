@@ -0,0 +1,87 @@
+package com.example.integration.repository;
+
+import com.example.integration.model.User;
+import com.example.integration.model.UserField;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Bulk operations on staged users that Spring Data cannot derive
+ */
+public interface UserRepositoryCustom {
+
+    /**
+     * Insert or update a chunk of users from one system in a single transaction.
+     * Existing rows are looked up with one query per chunk, rows whose content hash
+     * did not change are left untouched and all writes are flushed as JDBC batches.
+     * <p>
+     * Users changed in a snapshot get a new row in its generation and their current
+     * row is retired; {@link StagingStore#LIVE} writes update rows in place, and
+     * in the open snapshot if there is one. Holds the system's generation row lock.
+     */
+    UpsertResult upsertAll(String systemName, long generation, List<User> users);
+
+    /**
+     * Delete (or, in a snapshot, retire) a system's users whose external ID was not
+     * seen in the last full sync
+     *
+     * @return Number of deleted users
+     */
+    int deleteMissing(String systemName, long generation, Set<String> seenExternalIds);
+
+    /**
+     * Drop leftovers of unpublished snapshots and hand out the next generation
+     */
+    long beginSnapshot(String systemName);
+
+    /**
+     * Point readers at a snapshot; a single row update
+     */
+    void publishSnapshot(String systemName, long generation);
+
+    /**
+     * Remove the rows and retirements of an unpublished snapshot
+     */
+    void discardSnapshot(String systemName, long generation);
+
+    /**
+     * Hide all of a system's users by moving its floor past them; a single row update
+     */
+    void clearSystem(String systemName);
+
+    /**
+     * Bulk delete a system's rows that readers can no longer see: rows retired by
+     * the published generation or older, and rows below the floor
+     *
+     * @return Number of deleted rows
+     */
+    int dropSuperseded(String systemName);
+
+    /**
+     * Keyset page of users ordered by id, starting after the given id. Only the
+     * selected fields of the published generation are read from the database.
+     *
+     * @param systemName Only users of this system, or null for all systems
+     * @param afterId    Last id of the previous page, or null for the first page
+     */
+    List<Map<String, Object>> findPage(String systemName, Long afterId, int limit, Set<UserField> fields);
+
+    /**
+     * Stream users ordered by id without loading them all at once. Rows are fetched
+     * from the JDBC cursor in batches and are not attached to the persistence context,
+     * so memory stays flat. Must be consumed and closed inside a transaction.
+     *
+     * @param systemName  Only users of this system, or null for all systems
+     * @param fetchedFrom Only users fetched at or after this time, or null
+     * @param fetchedTo   Only users fetched before this time, or null
+     */
+    Stream<Map<String, Object>> streamAll(
+            String systemName,
+            LocalDateTime fetchedFrom,
+            LocalDateTime fetchedTo,
+            Set<UserField> fields);
+}
@@ -0,0 +1,390 @@
+package com.example.integration.repository;
+
+import com.example.integration.model.AdditionalDataCodec;
+import com.example.integration.model.SystemGeneration;
+import com.example.integration.model.User;
+import com.example.integration.model.UserField;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+    private static final int DELETE_CHUNK_SIZE = 500;
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    // Rows a reader of generation :asOf sees
+    private static final String VISIBLE_AS_OF = "u.generation between :floor and :asOf "
+            + "and (u.retiredGeneration is null or u.retiredGeneration > :asOf)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private TransactionTemplate rowCreator;
+
+    @Autowired
+    void setTransactionManager(PlatformTransactionManager transactionManager) {
+        rowCreator = new TransactionTemplate(transactionManager);
+        rowCreator.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    @Transactional
+    public UpsertResult upsertAll(String systemName, long generation, List<User> users) {
+        // Last record wins when an external ID shows up twice in one chunk
+        Map<String, User> byExternalId = new LinkedHashMap<>();
+        List<User> withoutExternalId = new ArrayList<>();
+        for (User user : users) {
+            if (user.getExternalId() == null) {
+                withoutExternalId.add(user);
+            } else {
+                byExternalId.put(user.getExternalId(), user);
+            }
+        }
+
+        // Locked, so a plain write and a snapshot chunk of the same system do not interleave
+        SystemGeneration state = lockGeneration(systemName);
+        boolean live = generation == StagingStore.LIVE;
+        long asOf = live ? state.getPublished() : generation;
+        // A plain write while a snapshot is being built goes into the snapshot as well,
+        // or publishing it would undo the write or leave a second row for the user
+        long open = live && state.getLatest() > state.getPublished() ? state.getLatest() : StagingStore.LIVE;
+
+        // One SELECT for the whole chunk instead of one per user; only id and hash are
+        // read here, full rows are loaded just for the users that actually changed
+        Map<String, Object[]> existing = visibleRows(systemName, byExternalId.keySet(), state.getFloor(), asOf);
+        Map<String, Object[]> inSnapshot = open == StagingStore.LIVE
+                ? Map.of()
+                : visibleRows(systemName, byExternalId.keySet(), state.getFloor(), open);
+
+        int inserted = 0;
+        int updated = 0;
+        int unchanged = 0;
+        Map<Long, User> changed = new HashMap<>();
+        List<Long> retired = new ArrayList<>();
+        for (User user : byExternalId.values()) {
+            Object[] current = existing.get(user.getExternalId());
+            Object[] snapshotRow = inSnapshot.get(user.getExternalId());
+            boolean ownSnapshotRow = snapshotRow != null && (current == null || !snapshotRow[1].equals(current[1]));
+
+            if (current != null && isNewer(current, user)) {
+                // Replayed data older than what a later write stored
+                unchanged++;
+                continue;
+            }
+
+            if (current == null) {
+                user.setGeneration(asOf);
+                if (ownSnapshotRow) {
+                    // The snapshot wrote the user first; its row below takes this write
+                    user.setRetiredGeneration(open);
+                }
+                entityManager.persist(user);
+                inserted++;
+            } else if (isUnchanged(current, user)) {
+                unchanged++;
+            } else if (live || (Long) current[3] == asOf) {
+                changed.put((Long) current[1], user);
+                updated++;
+            } else {
+                // Readers keep seeing the published row until the snapshot is published
+                retired.add((Long) current[1]);
+                user.setGeneration(asOf);
+                entityManager.persist(user);
+                updated++;
+            }
+
+            if (ownSnapshotRow) {
+                if (!isUnchanged(snapshotRow, user)) {
+                    changed.put((Long) snapshotRow[1], user);
+                }
+            } else if (open != StagingStore.LIVE && snapshotRow == null && current != null) {
+                // The snapshot retired the user; the later write brings it back
+                entityManager.persist(copyOf(user, open));
+            }
+        }
+        for (User user : withoutExternalId) {
+            user.setGeneration(asOf);
+            entityManager.persist(user);
+            inserted++;
+        }
+
+        if (!changed.isEmpty()) {
+            entityManager.createQuery("select u from User u where u.id in :ids", User.class)
+                    .setParameter("ids", changed.keySet())
+                    .getResultList()
+                    .forEach(current -> current.updateFrom(changed.get(current.getId())));
+        }
+        if (!retired.isEmpty()) {
+            entityManager.createQuery("update User u set u.retiredGeneration = :generation where u.id in :ids")
+                    .setParameter("generation", asOf)
+                    .setParameter("ids", retired)
+                    .executeUpdate();
+        }
+
+        // Writes go out as JDBC batches; clearing keeps the persistence context chunk-sized
+        entityManager.flush();
+        entityManager.clear();
+        return new UpsertResult(inserted, updated, unchanged);
+    }
+
+    /**
+     * External ID, id, content hash, generation and fetch time of the rows a reader of
+     * the given generation sees, by external ID
+     */
+    private Map<String, Object[]> visibleRows(String systemName, Set<String> externalIds, long floor, long asOf) {
+        Map<String, Object[]> rows = new HashMap<>();
+        if (externalIds.isEmpty()) {
+            return rows;
+        }
+        entityManager.createQuery(
+                        "select u.externalId, u.id, u.contentHash, u.generation, u.fetchedAt from User u "
+                                + "where u.systemName = :systemName and u.externalId in :externalIds and "
+                                + VISIBLE_AS_OF,
+                        Object[].class)
+                .setParameter("systemName", systemName)
+                .setParameter("externalIds", externalIds)
+                .setParameter("floor", floor)
+                .setParameter("asOf", asOf)
+                .getResultList()
+                .forEach(row -> rows.put((String) row[0], row));
+        return rows;
+    }
+
+    private static boolean isUnchanged(Object[] row, User user) {
+        return user.getContentHash() != null && Objects.equals(row[2], user.getContentHash());
+    }
+
+    private static boolean isNewer(Object[] row, User user) {
+        return user.getFetchedAt() != null && row[4] != null && ((LocalDateTime) row[4]).isAfter(user.getFetchedAt());
+    }
+
+    private static User copyOf(User user, long generation) {
+        User copy = new User();
+        copy.setExternalId(user.getExternalId());
+        copy.setSystemName(user.getSystemName());
+        copy.updateFrom(user);
+        copy.setGeneration(generation);
+        return copy;
+    }
+
+    @Override
+    @Transactional
+    public int deleteMissing(String systemName, long generation, Set<String> seenExternalIds) {
+        SystemGeneration state = lockGeneration(systemName);
+        boolean live = generation == StagingStore.LIVE;
+
+        List<Long> missing = new ArrayList<>();
+        try (Stream<Object[]> rows = entityManager.createQuery(
+                        "select u.id, u.externalId from User u "
+                                + "where u.systemName = :systemName and u.externalId is not null and " + VISIBLE_AS_OF,
+                        Object[].class)
+                .setParameter("systemName", systemName)
+                .setParameter("floor", state.getFloor())
+                .setParameter("asOf", live ? state.getPublished() : generation)
+                .getResultStream()) {
+            rows.filter(row -> !seenExternalIds.contains((String) row[1]))
+                    .forEach(row -> missing.add((Long) row[0]));
+        }
+
+        int deleted = 0;
+        for (int from = 0; from < missing.size(); from += DELETE_CHUNK_SIZE) {
+            List<Long> ids = missing.subList(from, Math.min(from + DELETE_CHUNK_SIZE, missing.size()));
+            deleted += live
+                    ? entityManager.createQuery("delete from User u where u.id in :ids")
+                            .setParameter("ids", ids)
+                            .executeUpdate()
+                    : entityManager.createQuery("update User u set u.retiredGeneration = :generation where u.id in :ids")
+                            .setParameter("generation", generation)
+                            .setParameter("ids", ids)
+                            .executeUpdate();
+        }
+        return deleted;
+    }
+
+    @Override
+    @Transactional
+    public long beginSnapshot(String systemName) {
+        SystemGeneration state = lockGeneration(systemName);
+        entityManager.createQuery("delete from User u where u.systemName = :systemName and u.generation > :published")
+                .setParameter("systemName", systemName)
+                .setParameter("published", state.getPublished())
+                .executeUpdate();
+        entityManager.createQuery("update User u set u.retiredGeneration = null "
+                        + "where u.systemName = :systemName and u.retiredGeneration > :published")
+                .setParameter("systemName", systemName)
+                .setParameter("published", state.getPublished())
+                .executeUpdate();
+        return state.next();
+    }
+
+    @Override
+    @Transactional
+    public void publishSnapshot(String systemName, long generation) {
+        SystemGeneration state = lockGeneration(systemName);
+        if (state.getLatest() != generation) {
+            throw new IllegalStateException("Snapshot " + generation + " of " + systemName
+                    + " was superseded by generation " + state.getLatest());
+        }
+        state.setPublished(generation);
+    }
+
+    @Override
+    @Transactional
+    public void discardSnapshot(String systemName, long generation) {
+        entityManager.createQuery("delete from User u where u.systemName = :systemName and u.generation = :generation")
+                .setParameter("systemName", systemName)
+                .setParameter("generation", generation)
+                .executeUpdate();
+        entityManager.createQuery("update User u set u.retiredGeneration = null "
+                        + "where u.systemName = :systemName and u.retiredGeneration = :generation")
+                .setParameter("systemName", systemName)
+                .setParameter("generation", generation)
+                .executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public void clearSystem(String systemName) {
+        SystemGeneration state = lockGeneration(systemName);
+        long cleared = state.next();
+        state.setFloor(cleared);
+        state.setPublished(cleared);
+    }
+
+    @Override
+    @Transactional
+    public int dropSuperseded(String systemName) {
+        SystemGeneration state = entityManager.find(SystemGeneration.class, systemName);
+        if (state == null) {
+            return 0;
+        }
+        return entityManager.createQuery("delete from User u where u.systemName = :systemName "
+                        + "and (u.retiredGeneration <= :published or u.generation < :floor)")
+                .setParameter("systemName", systemName)
+                .setParameter("published", state.getPublished())
+                .setParameter("floor", state.getFloor())
+                .executeUpdate();
+    }
+
+    /**
+     * Generation state of a system, locked until the transaction ends
+     */
+    private SystemGeneration lockGeneration(String systemName) {
+        SystemGeneration state = entityManager.find(SystemGeneration.class, systemName, LockModeType.PESSIMISTIC_WRITE);
+        if (state != null) {
+            return state;
+        }
+        // Created in a transaction of its own, so a concurrent first write that wins the
+        // race costs this one a unique violation rather than its whole transaction
+        try {
+            rowCreator.executeWithoutResult(status -> entityManager.persist(SystemGeneration.initial(systemName)));
+        } catch (DataIntegrityViolationException e) {
+            // Created concurrently; the lock below waits for it
+        }
+        return entityManager.find(SystemGeneration.class, systemName, LockModeType.PESSIMISTIC_WRITE);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findPage(String systemName, Long afterId, int limit, Set<UserField> fields) {
+        List<UserField> columns = List.copyOf(fields);
+        return projection(systemName, afterId, null, null, columns)
+                .setMaxResults(limit)
+                .getResultList()
+                .stream()
+                .map(row -> toMap(columns, row))
+                .toList();
+    }
+
+    @Override
+    public Stream<Map<String, Object>> streamAll(
+            String systemName,
+            LocalDateTime fetchedFrom,
+            LocalDateTime fetchedTo,
+            Set<UserField> fields) {
+        List<UserField> columns = List.copyOf(fields);
+        return projection(systemName, null, fetchedFrom, fetchedTo, columns)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .getResultStream()
+                .map(row -> toMap(columns, row));
+    }
+
+    /**
+     * Scalar query for the selected columns - no entities are instantiated or managed
+     */
+    private TypedQuery<Object[]> projection(
+            String systemName,
+            Long afterId,
+            LocalDateTime fetchedFrom,
+            LocalDateTime fetchedTo,
+            List<UserField> columns) {
+        StringBuilder jpql = new StringBuilder("select ");
+        for (int i = 0; i < columns.size(); i++) {
+            jpql.append(i == 0 ? "" : ", ").append("u.").append(columns.get(i).attribute());
+        }
+        // A constant keeps the result an Object[] even when a single field is selected.
+        // The published generation is read in the same statement, so a page never mixes two;
+        // a system without a generation row is at generation 0.
+        jpql.append(", 1 from User u left join SystemGeneration g on g.systemName = u.systemName ")
+                .append("where u.generation between coalesce(g.floor, 0) and coalesce(g.published, 0) ")
+                .append("and (u.retiredGeneration is null or u.retiredGeneration > coalesce(g.published, 0))");
+        if (systemName != null) {
+            jpql.append(" and u.systemName = :systemName");
+        }
+        if (afterId != null) {
+            jpql.append(" and u.id > :afterId");
+        }
+        if (fetchedFrom != null) {
+            jpql.append(" and u.fetchedAt >= :fetchedFrom");
+        }
+        if (fetchedTo != null) {
+            jpql.append(" and u.fetchedAt < :fetchedTo");
+        }
+        jpql.append(" order by u.id");
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql.toString(), Object[].class);
+        if (systemName != null) {
+            query.setParameter("systemName", systemName);
+        }
+        if (afterId != null) {
+            query.setParameter("afterId", afterId);
+        }
+        if (fetchedFrom != null) {
+            query.setParameter("fetchedFrom", fetchedFrom);
+        }
+        if (fetchedTo != null) {
+            query.setParameter("fetchedTo", fetchedTo);
+        }
+        return query;
+    }
+
+    private static Map<String, Object> toMap(List<UserField> columns, Object[] row) {
+        Map<String, Object> user = new LinkedHashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            UserField column = columns.get(i);
+            user.put(column.attribute(), column == UserField.ADDITIONAL_DATA
+                    ? AdditionalDataCodec.decode((byte[]) row[i])
+                    : row[i]);
+        }
+        return user;
+    }
+}
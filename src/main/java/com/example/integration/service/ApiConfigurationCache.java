@@ -0,0 +1,273 @@
+package com.example.integration.service;
+
+import com.example.integration.dto.CacheStats;
+import com.example.integration.model.ApiConfiguration;
+import com.example.integration.model.EnrichmentSettings;
+import com.example.integration.model.PaginationSettings;
+import com.example.integration.model.RateLimitSettings;
+import com.example.integration.model.TransportSettings;
+import com.example.integration.repository.ApiConfigurationRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory cache of active configurations in their resolved form.
+ * <p>
+ * Syncs read configurations from here, so after the first load a sync does no
+ * configuration I/O and no JSON parsing. Every configuration write through the
+ * API evicts the cache; edits made directly in the database are picked up after
+ * {@link #evictAll()} or a restart.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ApiConfigurationCache {
+
+    private final ApiConfigurationRepository configRepository;
+    private final ObjectMapper objectMapper;
+    private final TransportProfiles transportProfiles;
+
+    private final Map<String, ResolvedConfiguration> bySystem = new ConcurrentHashMap<>();
+    private volatile List<ResolvedConfiguration> allActive;
+
+    // Bumped on eviction so loads that raced with a write are not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Active configuration of a system
+     */
+    public Optional<ResolvedConfiguration> getActive(String systemName) {
+        ResolvedConfiguration cached = bySystem.get(systemName);
+        if (cached != null) {
+            hits.increment();
+            return Optional.of(cached);
+        }
+        misses.increment();
+
+        long loadedAt = generation.get();
+        Optional<ResolvedConfiguration> resolved = configRepository.findBySystemNameAndActiveTrue(systemName)
+                .map(this::resolve);
+        resolved.ifPresent(config -> {
+            bySystem.put(systemName, config);
+            if (generation.get() != loadedAt) {
+                bySystem.remove(systemName);
+            }
+        });
+        return resolved;
+    }
+
+    /**
+     * All active configurations
+     */
+    public List<ResolvedConfiguration> getAllActive() {
+        List<ResolvedConfiguration> cached = allActive;
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        long loadedAt = generation.get();
+        List<ResolvedConfiguration> resolved = configRepository.findByActiveTrue().stream()
+                .map(this::resolve)
+                .toList();
+        if (generation.get() == loadedAt) {
+            allActive = resolved;
+            resolved.forEach(config -> bySystem.putIfAbsent(config.getSystemName(), config));
+        }
+        return resolved;
+    }
+
+    /**
+     * Drop every cached configuration; called after any configuration write. The
+     * connection pools of systems that are no longer active are disposed; those of
+     * systems whose transport settings changed are replaced on their next request.
+     */
+    public void evictAll() {
+        generation.incrementAndGet();
+        bySystem.clear();
+        allActive = null;
+        evictions.increment();
+        transportProfiles.retainSystems(configRepository.findByActiveTrue().stream()
+                .map(ApiConfiguration::getSystemName)
+                .collect(Collectors.toSet()));
+        log.debug("Configuration cache evicted");
+    }
+
+    public CacheStats stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        return CacheStats.builder()
+                .hits(hitCount)
+                .misses(missCount)
+                .evictions(evictions.sum())
+                .size(bySystem.size())
+                .hitRate(total == 0 ? 0.0 : (double) hitCount / total)
+                .build();
+    }
+
+    /**
+     * Parse and validate a configuration into its resolved form
+     *
+     * @throws IllegalArgumentException if its field mappings, pagination, transport, rate limit, enrichment, response cache or schedule settings are invalid
+     */
+    public ResolvedConfiguration resolve(ApiConfiguration config) {
+        return ResolvedConfiguration.builder()
+                .id(config.getId())
+                .systemName(config.getSystemName())
+                .apiUrl(config.getApiUrl())
+                .httpMethod(config.getHttpMethod())
+                .headers(parseJsonToMap(config.getHeaders()))
+                .queryParams(parseJsonToMap(config.getQueryParams()))
+                .requestBody(config.getRequestBody())
+                .dataPath(config.getDataPath())
+                .webhookSecret(config.getWebhookSecret())
+                .webhookDataPath(config.getWebhookDataPath())
+                .pagination(parsePagination(config.getPagination()))
+                .transport(parseTransport(config.getTransport()))
+                .rateLimit(parseRateLimit(config.getRateLimit()))
+                .mappingPlan(FieldMappingPlan.compile(parseFieldMappings(config.getFieldMappings())))
+                .enrichment(parseEnrichment(config.getEnrichment()))
+                .watermarkParam(config.getWatermarkParam())
+                .responseCacheTtlSeconds(parseResponseCacheTtl(config.getResponseCacheTtlSeconds()))
+                .syncTimeoutSeconds(config.getSyncTimeoutSeconds())
+                .schedule(SyncSchedule.of(config.getSyncIntervalSeconds(), config.getSyncCron()))
+                .updatedAt(config.getUpdatedAt())
+                .build();
+    }
+
+    /**
+     * Helper method to parse JSON string to Map
+     */
+    private Map<String, String> parseJsonToMap(String json) {
+        if (json == null || json.isEmpty() || "{}".equals(json)) {
+            return Map.of();
+        }
+        try {
+            return Map.copyOf(objectMapper.readValue(json, new TypeReference<Map<String, String>>() {}));
+        } catch (Exception e) {
+            log.warn("Failed to parse JSON: {}", json, e);
+            return Map.of();
+        }
+    }
+
+    /**
+     * Parse field mappings JSON string to Map
+     */
+    private Map<String, String> parseFieldMappings(String fieldMappingsJson) {
+        try {
+            return objectMapper.readValue(fieldMappingsJson, new TypeReference<>() {});
+        } catch (Exception e) {
+            log.error("Failed to parse field mappings", e);
+            throw new IllegalArgumentException("Invalid field mappings configuration: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Helper method to parse pagination settings
+     */
+    private PaginationSettings parsePagination(String json) {
+        if (json == null || json.isBlank() || "{}".equals(json)) {
+            return new PaginationSettings();
+        }
+        PaginationSettings pagination;
+        try {
+            pagination = objectMapper.readValue(json, PaginationSettings.class);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid pagination configuration: " + e.getMessage(), e);
+        }
+        if (pagination.getType() == PaginationSettings.Type.CURSOR && pagination.getCursorPath() == null) {
+            throw new IllegalArgumentException("Cursor pagination requires 'cursorPath'");
+        }
+        if (pagination.getType() == PaginationSettings.Type.NEXT_URL && pagination.getNextUrlPath() == null) {
+            throw new IllegalArgumentException("Next URL pagination requires 'nextUrlPath'");
+        }
+        return pagination;
+    }
+
+    /**
+     * Helper method to parse the transport profile
+     */
+    private TransportSettings parseTransport(String json) {
+        if (json == null || json.isBlank() || "{}".equals(json)) {
+            return new TransportSettings();
+        }
+        TransportSettings transport;
+        try {
+            transport = objectMapper.readValue(json, TransportSettings.class);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid transport configuration: " + e.getMessage(), e);
+        }
+        if (transport.getMaxConnections() < 1 || transport.getConnectTimeoutSeconds() < 1
+                || transport.getReadTimeoutSeconds() < 1) {
+            throw new IllegalArgumentException(
+                    "Transport 'maxConnections', 'connectTimeoutSeconds' and 'readTimeoutSeconds' must be positive");
+        }
+        return transport;
+    }
+
+    /**
+     * Helper method to parse the rate limit settings
+     */
+    private RateLimitSettings parseRateLimit(String json) {
+        if (json == null || json.isBlank() || "{}".equals(json)) {
+            return new RateLimitSettings();
+        }
+        RateLimitSettings rateLimit;
+        try {
+            rateLimit = objectMapper.readValue(json, RateLimitSettings.class);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid rate limit configuration: " + e.getMessage(), e);
+        }
+        if (rateLimit.getRequestsPerSecond() != null && rateLimit.getRequestsPerSecond() <= 0) {
+            throw new IllegalArgumentException("Rate limit 'requestsPerSecond' must be positive");
+        }
+        if (rateLimit.getMaxRetries() < 0 || rateLimit.getCircuitFailureThreshold() < 1) {
+            throw new IllegalArgumentException(
+                    "Rate limit 'maxRetries' must not be negative and 'circuitFailureThreshold' must be positive");
+        }
+        return rateLimit;
+    }
+
+    /**
+     * Helper method to parse and compile the enrichment settings
+     */
+    private EnrichmentPlan parseEnrichment(String json) {
+        if (json == null || json.isBlank() || "{}".equals(json)) {
+            return null;
+        }
+        EnrichmentSettings enrichment;
+        try {
+            enrichment = objectMapper.readValue(json, EnrichmentSettings.class);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid enrichment configuration: " + e.getMessage(), e);
+        }
+        return EnrichmentPlan.compile(enrichment);
+    }
+
+    /**
+     * Helper method to validate the response cache TTL
+     */
+    private Integer parseResponseCacheTtl(Integer seconds) {
+        if (seconds != null && seconds < 0) {
+            throw new IllegalArgumentException("'responseCacheTtlSeconds' must not be negative");
+        }
+        return seconds;
+    }
+}
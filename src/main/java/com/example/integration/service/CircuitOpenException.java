@@ -0,0 +1,12 @@
+package com.example.integration.service;
+
+/**
+ * Thrown instead of calling a system whose circuit breaker is open
+ */
+public class CircuitOpenException extends RuntimeException {
+
+    public CircuitOpenException(String systemName, long retryInSeconds) {
+        super("Circuit open for system " + systemName + " after repeated failures, retry in "
+                + retryInSeconds + "s");
+    }
+}
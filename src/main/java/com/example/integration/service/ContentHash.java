@@ -0,0 +1,60 @@
+package com.example.integration.service;
+
+import com.example.integration.model.User;
+
+/**
+ * 64-bit FNV-1a hash used to tell whether a synced record changed upstream
+ */
+public final class ContentHash {
+
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private ContentHash() {
+    }
+
+    public static long of(CharSequence content) {
+        return mix(OFFSET_BASIS, content);
+    }
+
+    public static long of(byte[] content) {
+        long hash = OFFSET_BASIS;
+        for (byte b : content) {
+            hash = (hash ^ (b & 0xff)) * PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Hash of a mapped user: its raw record plus the columns it was mapped to, so
+     * users are rewritten after a field mapping change even if the vendor did not
+     * change their record
+     */
+    public static long ofUser(byte[] rawRecord, User user) {
+        long hash = of(rawRecord);
+        hash = mixField(hash, user.getExternalId());
+        hash = mixField(hash, user.getName());
+        hash = mixField(hash, user.getEmail());
+        hash = mixField(hash, user.getPhoneNumber());
+        hash = mixField(hash, user.getTimezone());
+        hash = mixField(hash, user.getAvatarUrl());
+        return mixField(hash, user.getSchedulingUrl());
+    }
+
+    private static long mixField(long hash, String value) {
+        // Marker byte so null, empty and adjacent values hash apart
+        if (value == null) {
+            return (hash ^ 0xfe) * PRIME;
+        }
+        return (mix(hash, value) ^ 0xff) * PRIME;
+    }
+
+    private static long mix(long hash, CharSequence content) {
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            hash = (hash ^ (c & 0xff)) * PRIME;
+            hash = (hash ^ (c >>> 8)) * PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.integration.service;
+
+import com.example.integration.model.EnrichmentSettings;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.web.util.UriUtils;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link EnrichmentSettings} of one configuration compiled for the per-record
+ * hot path: templates are split into literals and placeholders and field paths
+ * are pre-split once, when the configuration is loaded.
+ */
+public final class EnrichmentPlan {
+
+    // JSON bodies are full of braces, so placeholder names are limited to field path characters
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{(\\+?)([A-Za-z0-9_.-]+)}");
+    private static final Set<String> BATCH_PLACEHOLDERS = Set.of("ids", "idsJson");
+    private static final Set<String> METHODS = Set.of("GET", "POST", "PUT");
+
+    private final String httpMethod;
+    private final Template url;
+    private final Template body;
+    private final String dataPath;
+    private final String mergeInto;
+    private final int concurrency;
+    private final int batchSize;
+    private final String[] idPath;
+    private final String[] responseIdPath;
+    private final boolean skipFailed;
+
+    private EnrichmentPlan(EnrichmentSettings settings, Template url, Template body) {
+        this.httpMethod = settings.getHttpMethod().toUpperCase(Locale.ROOT);
+        this.url = url;
+        this.body = body;
+        this.dataPath = settings.getDataPath();
+        this.mergeInto = settings.getMergeInto();
+        this.concurrency = settings.getConcurrency();
+        this.batchSize = settings.getBatchSize();
+        this.idPath = settings.getIdField() == null ? null : settings.getIdField().split("\\.");
+        String responseIdField = settings.getResponseIdField() != null
+                ? settings.getResponseIdField()
+                : settings.getIdField();
+        this.responseIdPath = responseIdField == null ? null : responseIdField.split("\\.");
+        this.skipFailed = settings.isSkipFailed();
+    }
+
+    /**
+     * Compile enrichment settings
+     *
+     * @throws IllegalArgumentException if the templates or limits are invalid
+     */
+    public static EnrichmentPlan compile(EnrichmentSettings settings) {
+        if (settings.getUrl() == null || settings.getUrl().isBlank()) {
+            throw new IllegalArgumentException("Enrichment requires 'url'");
+        }
+        if (settings.getHttpMethod() == null
+                || !METHODS.contains(settings.getHttpMethod().toUpperCase(Locale.ROOT))) {
+            throw new IllegalArgumentException("Enrichment 'httpMethod' must be one of " + METHODS);
+        }
+        if (settings.getConcurrency() < 1 || settings.getBatchSize() < 1) {
+            throw new IllegalArgumentException("Enrichment 'concurrency' and 'batchSize' must be positive");
+        }
+        boolean batched = settings.getBatchSize() > 1;
+        if (batched && settings.getIdField() == null) {
+            throw new IllegalArgumentException("Batched enrichment requires 'idField'");
+        }
+
+        Template url = Template.parse(settings.getUrl(), batched);
+        Template body = settings.getBody() == null || settings.getBody().isEmpty()
+                ? null
+                : Template.parse(settings.getBody(), batched);
+        return new EnrichmentPlan(settings, url, body);
+    }
+
+    public String getHttpMethod() {
+        return httpMethod;
+    }
+
+    public String getDataPath() {
+        return dataPath;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public boolean isBatched() {
+        return batchSize > 1;
+    }
+
+    public boolean isSkipFailed() {
+        return skipFailed;
+    }
+
+    /**
+     * Detail request URI for one record, resolved against the API URL
+     *
+     * @return The URI, or null if the record lacks a value the template needs
+     */
+    public URI uri(String apiUrl, Map<String, Object> record) {
+        String rendered = url.render(placeholder -> valueAt(record, placeholder.path()), false);
+        return rendered == null ? null : URI.create(apiUrl).resolve(rendered);
+    }
+
+    /**
+     * Detail request body for one record, or null when none is configured
+     */
+    public String body(Map<String, Object> record) {
+        return body == null ? null : body.render(placeholder -> valueAt(record, placeholder.path()), true);
+    }
+
+    /**
+     * Batch-read request URI for the given record IDs, resolved against the API URL
+     */
+    public URI batchUri(String apiUrl, List<String> ids) {
+        return URI.create(apiUrl).resolve(url.render(placeholder -> ids, false));
+    }
+
+    /**
+     * Batch-read request body for the given record IDs, or null when none is configured
+     */
+    public String batchBody(List<String> ids) {
+        return body == null ? null : body.render(placeholder -> ids, true);
+    }
+
+    /**
+     * Value of a record's idField, as text
+     */
+    public String id(Map<String, Object> record) {
+        Object id = valueAt(record, idPath);
+        return id == null ? null : id.toString();
+    }
+
+    /**
+     * Value of the responseIdField of one batch-read result, as text
+     */
+    public String responseId(JsonNode result) {
+        JsonNode current = result;
+        for (String part : responseIdPath) {
+            current = current.path(part);
+        }
+        return current.isValueNode() && !current.isNull() ? current.asText() : null;
+    }
+
+    /**
+     * Add fetched details to a record
+     */
+    public void merge(Map<String, Object> record, Map<String, Object> details) {
+        if (mergeInto == null) {
+            record.putAll(details);
+        } else {
+            record.put(mergeInto, details);
+        }
+    }
+
+    private static Object valueAt(Map<String, Object> record, String[] path) {
+        Object current = record;
+        for (String part : path) {
+            if (current instanceof Map<?, ?> map) {
+                current = map.get(part);
+            } else {
+                return null;
+            }
+        }
+        return current;
+    }
+
+    private record Placeholder(String name, String[] path, boolean reserved) {
+    }
+
+    /**
+     * Template text split into literals (Strings) and {@link Placeholder}s
+     */
+    private record Template(List<Object> parts) {
+
+        static Template parse(String text, boolean batched) {
+            List<Object> parts = new ArrayList<>();
+            Matcher matcher = PLACEHOLDER.matcher(text);
+            int last = 0;
+            while (matcher.find()) {
+                String name = matcher.group(2);
+                if (batched != BATCH_PLACEHOLDERS.contains(name)) {
+                    throw new IllegalArgumentException(batched
+                            ? "Batched enrichment templates only take {ids} or {idsJson}, not {" + name + "}"
+                            : "{" + name + "} is only available to batched enrichment (batchSize > 1)");
+                }
+                parts.add(text.substring(last, matcher.start()));
+                parts.add(new Placeholder(name, name.split("\\."), !matcher.group(1).isEmpty()));
+                last = matcher.end();
+            }
+            parts.add(text.substring(last));
+            return new Template(List.copyOf(parts));
+        }
+
+        /**
+         * Fill in the placeholders, URL- or JSON-string-encoding the values
+         *
+         * @return The text, or null if a placeholder has no value
+         */
+        String render(Function<Placeholder, Object> values, boolean json) {
+            StringBuilder rendered = new StringBuilder();
+            for (Object part : parts) {
+                if (part instanceof Placeholder placeholder) {
+                    Object value = values.apply(placeholder);
+                    if (value == null) {
+                        return null;
+                    }
+                    rendered.append(format(placeholder, value, json));
+                } else {
+                    rendered.append((String) part);
+                }
+            }
+            return rendered.toString();
+        }
+
+        private static String format(Placeholder placeholder, Object value, boolean json) {
+            if (value instanceof Collection<?> ids) {
+                if ("idsJson".equals(placeholder.name())) {
+                    List<String> quoted = ids.stream()
+                            .map(id -> "\"" + new String(JsonStringEncoder.getInstance().quoteAsString(id.toString())) + "\"")
+                            .toList();
+                    String array = "[" + String.join(",", quoted) + "]";
+                    return json || placeholder.reserved() ? array : UriUtils.encode(array, StandardCharsets.UTF_8);
+                }
+                return String.join(",", ids.stream().map(id -> encode(placeholder, id.toString(), json)).toList());
+            }
+            return encode(placeholder, value.toString(), json);
+        }
+
+        private static String encode(Placeholder placeholder, String value, boolean json) {
+            if (placeholder.reserved()) {
+                return value;
+            }
+            return json
+                    ? new String(JsonStringEncoder.getInstance().quoteAsString(value))
+                    : UriUtils.encode(value, StandardCharsets.UTF_8);
+        }
+    }
+}
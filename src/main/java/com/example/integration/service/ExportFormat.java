@@ -0,0 +1,40 @@
+package com.example.integration.service;
+
+import java.util.Arrays;
+
+/**
+ * Output formats of the user export
+ */
+public enum ExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv;charset=UTF-8", "csv");
+
+    private final String mediaType;
+    private final String extension;
+
+    ExportFormat(String mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public String mediaType() {
+        return mediaType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the format is unknown
+     */
+    public static ExportFormat parse(String format) {
+        if (format == null || format.isBlank()) {
+            return NDJSON;
+        }
+        return Arrays.stream(values())
+                .filter(value -> value.extension.equalsIgnoreCase(format.trim()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown export format: " + format));
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.integration.service;
+
+import com.example.integration.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Field mappings of one configuration compiled for the per-record hot path.
+ * <p>
+ * Dotted source paths are split once and every target field is resolved to a
+ * direct setter on {@link User}, so mapping a record walks a flat array and
+ * allocates nothing but the entity itself.
+ */
+public final class FieldMappingPlan {
+
+    // Target field names are matched case-insensitively, as before
+    private static final Map<String, BiConsumer<User, String>> TARGETS = Map.of(
+            "externalid", User::setExternalId,
+            "name", User::setName,
+            "email", User::setEmail,
+            "phonenumber", User::setPhoneNumber,
+            "timezone", User::setTimezone,
+            "avatarurl", User::setAvatarUrl,
+            "schedulingurl", User::setSchedulingUrl);
+
+    private final Step[] steps;
+
+    private FieldMappingPlan(Step[] steps) {
+        this.steps = steps;
+    }
+
+    /**
+     * Compile API field -> User field mappings
+     *
+     * @throws IllegalArgumentException if a target is not a known User field
+     */
+    public static FieldMappingPlan compile(Map<String, String> fieldMappings) {
+        List<Step> steps = new ArrayList<>(fieldMappings.size());
+        List<String> unknown = new ArrayList<>();
+
+        for (Map.Entry<String, String> mapping : fieldMappings.entrySet()) {
+            String apiField = mapping.getKey();      // Field name in API response
+            String userField = mapping.getValue();   // Field name in our User entity
+
+            BiConsumer<User, String> setter = userField == null
+                    ? null
+                    : TARGETS.get(userField.toLowerCase(Locale.ROOT));
+            if (setter == null) {
+                unknown.add(userField);
+            } else {
+                steps.add(new Step(apiField.split("\\."), setter));
+            }
+        }
+
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("Unknown user field(s) in field mappings: " + unknown
+                    + " (available: externalId, name, email, phoneNumber, timezone, avatarUrl, schedulingUrl)");
+        }
+        return new FieldMappingPlan(steps.toArray(new Step[0]));
+    }
+
+    /**
+     * Map raw API data to a new User entity
+     */
+    public User map(Map<String, Object> rawData, String systemName) {
+        User user = new User();
+        user.setSystemName(systemName);
+
+        for (Step step : steps) {
+            Object value = step.extract(rawData);
+            if (value != null) {
+                step.setter().accept(user, value.toString());
+            }
+        }
+        return user;
+    }
+
+    private record Step(String[] path, BiConsumer<User, String> setter) {
+
+        /**
+         * Extract value from nested object using the pre-split dot notation path
+         */
+        Object extract(Map<String, Object> data) {
+            Object current = data;
+            for (String part : path) {
+                if (current instanceof Map<?, ?> map) {
+                    current = map.get(part);
+                } else {
+                    return null;
+                }
+            }
+            return current;
+        }
+    }
+}
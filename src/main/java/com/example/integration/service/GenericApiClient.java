@@ -1,192 +1,739 @@
 package com.example.integration.service;
 
-import com.example.integration.model.ApiConfiguration;
+import com.example.integration.model.PaginationSettings;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.reactive.function.client.WebClient.UriSpec;
-
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 @Slf4j
 public class GenericApiClient {
 
-    private final WebClient webClient;
+    private static final Pattern NEXT_LINK = Pattern.compile("<([^>]*)>\\s*;[^,]*rel=\"?next\"?");
+    private static final TypeReference<Map<String, Object>> RECORD_TYPE = new TypeReference<>() {};
+
+    private final TransportProfiles transportProfiles;
+    private final SystemThrottles throttles;
+    private final SyncMetrics syncMetrics;
     private final ObjectMapper objectMapper;
+    private final ResponseCache responseCache;
 
-    public GenericApiClient(WebClient.Builder webClientBuilder, ObjectMapper objectMapper) {
-        this.webClient = webClientBuilder.build();
+    public GenericApiClient(
+            TransportProfiles transportProfiles,
+            SystemThrottles throttles,
+            SyncMetrics syncMetrics,
+            ObjectMapper objectMapper,
+            ResponseCache responseCache) {
+        this.transportProfiles = transportProfiles;
+        this.throttles = throttles;
+        this.syncMetrics = syncMetrics;
         this.objectMapper = objectMapper;
+        this.responseCache = responseCache;
     }
 
     /**
-     * Generic method to call any external API based on configuration
-     * 
-     * @param config The API configuration from database
-     * @return List of raw data maps from the API response
+     * Call any external API based on configuration. The response body is parsed as it
+     * arrives and each record under the configured data path is emitted on its own,
+     * so the payload is never held in memory as a whole.
+     * <p>
+     * Paginated configurations follow the next-page link of every response. Records of
+     * a page are emitted as they are parsed, and page N+1 is requested as soon as the
+     * body of page N has been read, while its last records are still being mapped and
+     * persisted downstream.
+     * <p>
+     * Systems with a {@code responseCacheTtlSeconds} go through the {@link ResponseCache}.
+     * Runs with their own query params (an incremental run's watermark) bypass it: every
+     * run renders different URIs, so their entries would never be hit again.
+     *
+     * @param config The resolved API configuration
+     * @return Raw records from the API response, one per record
      */
-    public List<Map<String, Object>> callExternalApi(ApiConfiguration config) {
-        try {
+    public Flux<RawRecord> streamExternalApi(ResolvedConfiguration config) {
+        return streamExternalApi(config, Map.of(), new SyncProgress(config.getSystemName()), null);
+    }
+
+    /**
+     * Stream records with additional query params for this run only (e.g. a
+     * watermark), sent on top of the configured ones, counting fetched pages
+     * into the given progress
+     *
+     * @param spool Receives the raw body of every page, or null to not spool the run
+     */
+    public Flux<RawRecord> streamExternalApi(
+            ResolvedConfiguration config,
+            Map<String, String> runParams,
+            SyncProgress progress,
+            SpoolWriter spool) {
+        return Flux.defer(() -> {
             log.info("Calling external API: {} - {}", config.getSystemName(), config.getApiUrl());
 
-            // Parse headers
-            Map<String, String> headers = parseJsonToMap(config.getHeaders());
-            
-            // Parse query parameters
-            Map<String, String> queryParams = parseJsonToMap(config.getQueryParams());
-            
-            // Build the request
-            WebClient.RequestHeadersSpec<?> requestSpec = buildRequest(config, headers, queryParams);
-            
-            // Execute request and get response
-            String responseBody = requestSpec
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .timeout(Duration.ofSeconds(30))
-                    .block();
+            Map<String, String> queryParams = config.getQueryParams();
+            boolean cacheable = runParams.isEmpty();
+            if (!runParams.isEmpty()) {
+                queryParams = new LinkedHashMap<>(queryParams);
+                queryParams.putAll(runParams);
+            }
+
+            PaginationSettings pagination = config.getPagination();
+            if (!pagination.isPaginated()) {
+                return enrich(config, streamSingleResponse(config, queryParams, cacheable, spool)
+                        .doOnComplete(progress::pageFetched));
+            }
+
+            // Each page queues the request for the one after it once its body is parsed
+            Map<String, String> pageQueryParams = queryParams;
+            Sinks.Many<PageRequest> pages = Sinks.many().unicast().onBackpressureBuffer();
+            pages.tryEmitNext(new PageRequest(1, 0, pagination.getFirstPage(), null, null));
+            return enrich(config, pages.asFlux()
+                    .concatMap(request -> streamPage(config, pageQueryParams, cacheable, request, spool, pages)
+                            .doOnComplete(progress::pageFetched)));
+        });
+    }
+
+    /**
+     * Fetch the details of every listed record, when the configuration asks for it,
+     * and merge them into the record.
+     * <p>
+     * At most {@code concurrency} detail requests are in flight at once and records
+     * keep their listed order; the list is only read ahead as far as those requests
+     * need. Detail requests share the system's throttle and retry policy with the
+     * list requests. Batched configurations look up {@code batchSize} records per
+     * request.
+     */
+    private Flux<RawRecord> enrich(ResolvedConfiguration config, Flux<RawRecord> records) {
+        EnrichmentPlan plan = config.getEnrichment();
+        if (plan == null) {
+            return records;
+        }
+        SystemThrottle throttle = throttles.forSystem(config);
+        SyncMetrics.SystemMeters meters = syncMetrics.forSystem(config.getSystemName());
+
+        if (plan.isBatched()) {
+            return records.buffer(plan.getBatchSize())
+                    .flatMapSequential(batch -> enrichBatch(config, plan, batch, throttle, meters),
+                            plan.getConcurrency(), 1)
+                    .concatMapIterable(batch -> batch);
+        }
+        return records.flatMapSequential(record -> enrichRecord(config, plan, record, throttle, meters),
+                plan.getConcurrency(), 1);
+    }
+
+    /**
+     * Fetch and merge the details of one record; records without the values the
+     * request template needs are passed on as listed
+     */
+    private Mono<RawRecord> enrichRecord(
+            ResolvedConfiguration config,
+            EnrichmentPlan plan,
+            RawRecord record,
+            SystemThrottle throttle,
+            SyncMetrics.SystemMeters meters) {
+
+        URI uri = plan.uri(config.getApiUrl(), record.fields());
+        if (uri == null) {
+            return Mono.just(record);
+        }
+        return fetchDetails(config, plan, uri, plan.body(record.fields()), throttle, meters)
+                .map(details -> {
+                    if (details.isObject()) {
+                        plan.merge(record.fields(), toMap(details));
+                        meters.recordsEnriched(1);
+                    }
+                    return retokenize(record.fields());
+                })
+                .onErrorResume(e -> plan.isSkipFailed(), e -> {
+                    log.debug("Keeping record of {} as listed: {}", config.getSystemName(), e.getMessage());
+                    meters.recordsEnrichFailed(1);
+                    return Mono.just(record);
+                });
+    }
+
+    /**
+     * Fetch the details of a batch of records with one request and merge each result
+     * into the record with the same ID
+     */
+    private Mono<List<RawRecord>> enrichBatch(
+            ResolvedConfiguration config,
+            EnrichmentPlan plan,
+            List<RawRecord> batch,
+            SystemThrottle throttle,
+            SyncMetrics.SystemMeters meters) {
+
+        List<String> ids = batch.stream()
+                .map(record -> plan.id(record.fields()))
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        if (ids.isEmpty()) {
+            return Mono.just(batch);
+        }
+        URI uri = plan.batchUri(config.getApiUrl(), ids);
+        return fetchDetails(config, plan, uri, plan.batchBody(ids), throttle, meters)
+                .map(results -> {
+                    Map<String, JsonNode> byId = new HashMap<>(results.size() * 2);
+                    for (JsonNode result : results) {
+                        String id = plan.responseId(result);
+                        if (id != null) {
+                            byId.put(id, result);
+                        }
+                    }
+                    List<RawRecord> enriched = new ArrayList<>(batch.size());
+                    for (RawRecord record : batch) {
+                        String id = plan.id(record.fields());
+                        JsonNode details = id == null ? null : byId.get(id);
+                        if (details != null && details.isObject()) {
+                            plan.merge(record.fields(), toMap(details));
+                            meters.recordsEnriched(1);
+                            enriched.add(retokenize(record.fields()));
+                        } else {
+                            enriched.add(record);
+                        }
+                    }
+                    return enriched;
+                })
+                .onErrorResume(e -> plan.isSkipFailed(), e -> {
+                    log.debug("Keeping {} records of {} as listed: {}", batch.size(), config.getSystemName(), e.getMessage());
+                    meters.recordsEnrichFailed(batch.size());
+                    return Mono.just(batch);
+                });
+    }
+
+    /**
+     * Send one detail request and return the node at the enrichment data path.
+     * Detail responses are small, so they are read whole rather than streamed.
+     */
+    private Mono<JsonNode> fetchDetails(
+            ResolvedConfiguration config,
+            EnrichmentPlan plan,
+            URI uri,
+            String body,
+            SystemThrottle throttle,
+            SyncMetrics.SystemMeters meters) {
+        return exchange(config, plan.getHttpMethod(), uri, body, Map.of(), throttle, meters)
+                .flatMap(entity -> DataBufferUtils.join(limitSize(config, entity.getBody())))
+                .map(buffer -> {
+                    try (InputStream in = buffer.asInputStream(true)) {
+                        meters.bytesReceived(buffer.readableByteCount());
+                        JsonNode node = objectMapper.readTree(in);
+                        return plan.getDataPath() == null || plan.getDataPath().isEmpty()
+                                ? node
+                                : node.at("/" + plan.getDataPath().replace('.', '/'));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Failed to parse enrichment response: " + e.getMessage(), e);
+                    }
+                })
+                .retryWhen(throttle.retrySpec());
+    }
+
+    private Map<String, Object> toMap(JsonNode details) {
+        return objectMapper.convertValue(details, RECORD_TYPE);
+    }
+
+    /**
+     * Re-encode an enriched record, so the stored additional data and content hash
+     * include its details
+     */
+    private RawRecord retokenize(Map<String, Object> fields) {
+        TokenBuffer tokens = new TokenBuffer(objectMapper, false);
+        try {
+            objectMapper.writeValue(tokens, fields);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode enriched record", e);
+        }
+        return new RawRecord(fields, tokens);
+    }
+
+    /**
+     * Execute a single request and parse the body chunk by chunk
+     */
+    private Flux<RawRecord> streamSingleResponse(
+            ResolvedConfiguration config,
+            Map<String, String> queryParams,
+            boolean cacheable,
+            SpoolWriter spool) {
 
-            log.debug("API Response: {}", responseBody);
+        URI uri = buildUri(config.getApiUrl(), queryParams, Map.of());
+        SystemThrottle throttle = throttles.forSystem(config);
+        SyncMetrics.SystemMeters meters = syncMetrics.forSystem(config.getSystemName());
 
-            // Parse response and extract user data
-            return extractUserData(responseBody, config.getDataPath());
+        // Records are emitted while the body streams in, so only failures before the
+        // body starts are retried - a retry mid-body would emit records twice
+        return Flux.using(
+                () -> new JsonRecordStreamer(objectMapper, config.getDataPath()),
+                streamer -> fetch(config, uri, cacheable, throttle, meters)
+                        .retryWhen(throttle.retrySpec())
+                        .doOnNext(entity -> beginPage(spool))
+                        .flatMapMany(entity -> limitSize(config, entity.getBody()))
+                        .concatMapIterable(buffer -> feed(streamer, buffer, spool))
+                        .concatWith(Flux.defer(() -> Flux.fromIterable(endOfInput(streamer))))
+                        .doOnComplete(() -> endPage(spool)),
+                streamer -> {
+                    streamer.close();
+                    abortPage(spool);
+                });
+    }
+
+    /**
+     * Fetch one page and parse its body chunk by chunk, queueing the request for the
+     * page after it, or completing the page requests, once the body has been read
+     */
+    private Flux<RawRecord> streamPage(
+            ResolvedConfiguration config,
+            Map<String, String> queryParams,
+            boolean cacheable,
+            PageRequest request,
+            SpoolWriter spool,
+            Sinks.Many<PageRequest> pages) {
+
+        PaginationSettings pagination = config.getPagination();
+        URI uri = request.url() != null
+                ? linkUri(request.url(), queryParams)
+                : buildUri(config.getApiUrl(), queryParams, pageParams(pagination, request));
+        log.debug("Fetching page {} from {}: {}", request.number(), config.getSystemName(), uri);
+
+        Set<String> capturePaths = capturePaths(pagination);
+        SystemThrottle throttle = throttles.forSystem(config);
+        SyncMetrics.SystemMeters meters = syncMetrics.forSystem(config.getSystemName());
+
+        // As with a single response, only failures before the body starts are retried
+        return Flux.using(
+                () -> new JsonRecordStreamer(objectMapper, config.getDataPath(), capturePaths),
+                streamer -> {
+                    int[] records = {0};
+                    return fetch(config, uri, cacheable, throttle, meters)
+                            .retryWhen(throttle.retrySpec())
+                            .doOnNext(entity -> beginPage(spool))
+                            .flatMapMany(entity -> limitSize(config, entity.getBody())
+                                    .concatMapIterable(buffer -> feed(streamer, buffer, spool))
+                                    .concatWith(Flux.defer(() -> Flux.fromIterable(endOfInput(streamer))))
+                                    .doOnNext(record -> records[0]++)
+                                    .doOnComplete(() -> {
+                                        endPage(spool);
+                                        PageRequest next = nextPage(
+                                                config, pagination, request, records[0], streamer, entity.getHeaders());
+                                        if (next == null) {
+                                            pages.tryEmitComplete();
+                                        } else {
+                                            pages.tryEmitNext(next);
+                                        }
+                                    }));
+                },
+                streamer -> {
+                    streamer.close();
+                    // No-op once the page was ended; drops it when the request failed
+                    abortPage(spool);
+                });
+    }
 
-        } catch (Exception e) {
-            log.error("Error calling external API for system: {}", config.getSystemName(), e);
-            throw new RuntimeException("Failed to call external API: " + e.getMessage(), e);
+    /**
+     * Send one list request, answering it from the response cache when the system
+     * has one and the request is cacheable: a fresh entry is served without a request,
+     * a stale one is revalidated and reused on 304, and other bodies are recorded as
+     * they stream to the parser
+     */
+    private Mono<ResponseEntity<Flux<DataBuffer>>> fetch(
+            ResolvedConfiguration config,
+            URI uri,
+            boolean cacheable,
+            SystemThrottle throttle,
+            SyncMetrics.SystemMeters meters) {
+        if (!cacheable || config.getResponseCacheTtlSeconds() == null) {
+            return exchange(config, config.getHttpMethod(), uri, config.getRequestBody(), Map.of(), throttle, meters)
+                    .map(entity -> withBody(entity, countBytes(entity.getBody(), meters)));
         }
+        Duration ttl = Duration.ofSeconds(config.getResponseCacheTtlSeconds());
+        ResponseCache.Key key = ResponseCache.Key.of(
+                config.getHttpMethod(), uri, config.getHeaders(), config.getRequestBody());
+
+        return Mono.defer(() -> {
+            ResponseCache.Entry cached = responseCache.get(key);
+            if (cached != null && cached.isFresh()) {
+                meters.responseCacheHit();
+                return Mono.just(replay(cached));
+            }
+            Map<String, String> conditional = cached == null ? Map.of() : cached.conditionalHeaders();
+            return exchange(config, config.getHttpMethod(), uri, config.getRequestBody(), conditional, throttle, meters)
+                    .flatMap(entity -> {
+                        if (cached != null && entity.getStatusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+                            meters.responseCacheRevalidated();
+                            return entity.getBody()
+                                    .doOnNext(DataBufferUtils::release)
+                                    .then(Mono.fromSupplier(() -> replay(responseCache.renew(key, cached, ttl))));
+                        }
+                        meters.responseCacheMiss();
+                        if (!entity.getStatusCode().is2xxSuccessful()) {
+                            return Mono.just(withBody(entity, countBytes(entity.getBody(), meters)));
+                        }
+                        ResponseCache.Recording recording = responseCache.record(key, entity.getHeaders(), ttl);
+                        Flux<DataBuffer> body = countBytes(entity.getBody(), meters)
+                                .doOnNext(recording::append)
+                                .doOnComplete(recording::complete);
+                        return Mono.just(withBody(entity, body));
+                    });
+        });
+    }
+
+    /**
+     * A cached response as if it had just been received
+     */
+    private static ResponseEntity<Flux<DataBuffer>> replay(ResponseCache.Entry entry) {
+        Flux<DataBuffer> body = Flux.defer(() -> Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(entry.body())));
+        return new ResponseEntity<>(body, entry.headers(), HttpStatus.OK);
+    }
+
+    private static ResponseEntity<Flux<DataBuffer>> withBody(
+            ResponseEntity<Flux<DataBuffer>> entity,
+            Flux<DataBuffer> body) {
+        return new ResponseEntity<>(body, entity.getHeaders(), entity.getStatusCode());
+    }
+
+    private static Flux<DataBuffer> countBytes(Flux<DataBuffer> body, SyncMetrics.SystemMeters meters) {
+        return body.doOnNext(buffer -> meters.bytesReceived(buffer.readableByteCount()));
+    }
+
+    /**
+     * Send one request once the system's throttle allows it, feeding the outcome
+     * back into the throttle
+     */
+    private Mono<ResponseEntity<Flux<DataBuffer>>> exchange(
+            ResolvedConfiguration config,
+            String httpMethod,
+            URI uri,
+            String requestBody,
+            Map<String, String> extraHeaders,
+            SystemThrottle throttle,
+            SyncMetrics.SystemMeters meters) {
+        return throttle.acquire()
+                .flatMap(trial -> {
+                    long sentAt = System.nanoTime();
+                    AtomicBoolean settled = new AtomicBoolean();
+                    return Mono.defer(() -> buildRequest(config, httpMethod, uri, requestBody, extraHeaders)
+                                    .retrieve()
+                                    .toEntityFlux(DataBuffer.class))
+                            .doOnEach(signal -> {
+                                if (signal.isOnNext() || signal.isOnError()) {
+                                    meters.httpRequest(System.nanoTime() - sentAt);
+                                }
+                            })
+                            .doOnNext(entity -> {
+                                settled.set(true);
+                                throttle.onResponse(entity.getHeaders());
+                            })
+                            .doOnError(error -> {
+                                settled.set(true);
+                                throttle.onError(error);
+                            })
+                            // A cancelled trial never reports an outcome; hand it back
+                            .doOnCancel(() -> {
+                                if (trial && settled.compareAndSet(false, true)) {
+                                    throttle.releaseTrial();
+                                }
+                            });
+                });
+    }
+
+    /**
+     * Work out the request for the next page, or null when this was the last one
+     */
+    private PageRequest nextPage(
+            ResolvedConfiguration config,
+            PaginationSettings pagination,
+            PageRequest current,
+            int records,
+            JsonRecordStreamer streamer,
+            HttpHeaders responseHeaders) {
+
+        if (pagination.getMaxPages() != null && current.number() >= pagination.getMaxPages()) {
+            log.info("Reached max pages ({}) for system: {}", pagination.getMaxPages(), config.getSystemName());
+            return null;
+        }
+
+        int number = current.number() + 1;
+        switch (pagination.getType()) {
+            case CURSOR: {
+                String cursor = streamer.getCaptured(pagination.getCursorPath());
+                if (cursor == null || cursor.isEmpty() || cursor.equals(current.cursor())) {
+                    return null;
+                }
+                return new PageRequest(number, 0, 0, null, cursor);
+            }
+            case NEXT_URL: {
+                String nextUrl = streamer.getCaptured(pagination.getNextUrlPath());
+                if (nextUrl == null || nextUrl.isEmpty()) {
+                    return null;
+                }
+                return new PageRequest(number, 0, 0, resolveLink(config, nextUrl), null);
+            }
+            case LINK_HEADER: {
+                String nextUrl = nextLink(responseHeaders);
+                return nextUrl == null ? null : new PageRequest(number, 0, 0, resolveLink(config, nextUrl), null);
+            }
+            case OFFSET:
+                return isLastPage(pagination, records)
+                        ? null
+                        : new PageRequest(number, current.offset() + records, 0, null, null);
+            case PAGE_NUMBER:
+                return isLastPage(pagination, records)
+                        ? null
+                        : new PageRequest(number, 0, current.page() + 1, null, null);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Offset and page-number APIs signal the end with a short or empty page
+     */
+    private boolean isLastPage(PaginationSettings pagination, int records) {
+        return records == 0
+                || (pagination.getPageSize() != null && records < pagination.getPageSize());
+    }
+
+    /**
+     * Query params that select the requested page
+     */
+    private Map<String, String> pageParams(PaginationSettings pagination, PageRequest request) {
+        Map<String, String> params = new LinkedHashMap<>();
+        if (pagination.getLimitParam() != null && pagination.getPageSize() != null) {
+            params.put(pagination.getLimitParam(), String.valueOf(pagination.getPageSize()));
+        }
+        switch (pagination.getType()) {
+            case CURSOR -> {
+                if (request.cursor() != null) {
+                    params.put(pagination.getCursorParam(), request.cursor());
+                }
+            }
+            case OFFSET -> params.put(pagination.getOffsetParam(), String.valueOf(request.offset()));
+            case PAGE_NUMBER -> params.put(pagination.getPageParam(), String.valueOf(request.page()));
+            default -> {
+                // Next URL and Link header pages carry their own position
+            }
+        }
+        return params;
+    }
+
+    /**
+     * Response fields the streaming parser has to pick up for the next-page link
+     */
+    private Set<String> capturePaths(PaginationSettings pagination) {
+        return switch (pagination.getType()) {
+            case CURSOR -> Set.of(pagination.getCursorPath());
+            case NEXT_URL -> Set.of(pagination.getNextUrlPath());
+            default -> Set.of();
+        };
+    }
+
+    /**
+     * Extract the rel="next" target from an RFC 8288 Link header
+     */
+    private String nextLink(HttpHeaders responseHeaders) {
+        for (String link : responseHeaders.getOrEmpty(HttpHeaders.LINK)) {
+            Matcher matcher = NEXT_LINK.matcher(link);
+            if (matcher.find()) {
+                return matcher.group(1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resolve a (possibly relative) next-page link against the configured URL
+     */
+    private String resolveLink(ResolvedConfiguration config, String nextUrl) {
+        return URI.create(config.getApiUrl()).resolve(nextUrl).toString();
+    }
+
+    /**
+     * Request URI of a next-page link. Configured query params and the run's
+     * watermark are added back unless the link already carries them.
+     */
+    private URI linkUri(String url, Map<String, String> queryParams) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromUri(URI.create(url));
+        MultiValueMap<String, String> carried = builder.build().getQueryParams();
+        queryParams.forEach((name, value) -> {
+            if (!carried.containsKey(name)) {
+                builder.queryParam(
+                        UriUtils.encodeQueryParam(name, StandardCharsets.UTF_8),
+                        UriUtils.encodeQueryParam(value, StandardCharsets.UTF_8));
+            }
+        });
+        return builder.build(true).toUri();
+    }
+
+    /**
+     * Build the request URI from the configured URL and query parameters
+     */
+    private URI buildUri(String apiUrl, Map<String, String> queryParams, Map<String, String> pageParams) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(apiUrl);
+        queryParams.forEach(builder::queryParam);
+        pageParams.forEach(builder::replaceQueryParam);
+        return builder.build().encode().toUri();
     }
 
     /**
      * Build the HTTP request based on configuration
      */
     private WebClient.RequestHeadersSpec<?> buildRequest(
-            ApiConfiguration config, 
-            Map<String, String> headers, 
-            Map<String, String> queryParams) {
-        
-        String method = config.getHttpMethod().toUpperCase();
-        
+            ResolvedConfiguration config,
+            String httpMethod,
+            URI uri,
+            String requestBody,
+            Map<String, String> extraHeaders) {
+        String method = httpMethod.toUpperCase();
+        WebClient webClient = transportProfiles.clientFor(config.getSystemName(), config.getTransport());
+
         // Build the appropriate request spec based on HTTP method
         WebClient.RequestHeadersSpec<?> requestSpec;
-        
+
         switch (method) {
             case "GET":
-                requestSpec = webClient.get()
-                    .uri(uriBuilder -> {
-                        ((UriSpec<?>) uriBuilder).uri(config.getApiUrl());
-                        queryParams.forEach(uriBuilder::queryParam);
-                        return uriBuilder.build();
-                    });
+                requestSpec = webClient.get().uri(uri);
                 break;
-                
+
             case "DELETE":
-                requestSpec = webClient.delete()
-                    .uri(uriBuilder -> {
-                        ((UriSpec<?>) uriBuilder).uri(config.getApiUrl());
-                        queryParams.forEach(uriBuilder::queryParam);
-                        return uriBuilder.build();
-                    });
+                requestSpec = webClient.delete().uri(uri);
                 break;
-                
+
             case "POST":
-                WebClient.RequestBodyUriSpec postSpec = webClient.post();
-                postSpec.uri(uriBuilder -> {
-                    ((UriSpec<?>) uriBuilder).uri(config.getApiUrl());
-                    queryParams.forEach(uriBuilder::queryParam);
-                    return uriBuilder.build();
-                });
+                WebClient.RequestBodySpec postSpec = webClient.post().uri(uri);
                 // Set request body if provided
-                if (config.getRequestBody() != null && !config.getRequestBody().isEmpty()) {
-                    requestSpec = postSpec.bodyValue(config.getRequestBody());
+                if (requestBody != null && !requestBody.isEmpty()) {
+                    requestSpec = postSpec.bodyValue(requestBody);
                 } else {
                     requestSpec = postSpec;
                 }
                 break;
-                
+
             case "PUT":
-                WebClient.RequestBodyUriSpec putSpec = webClient.put();
-                putSpec.uri(uriBuilder -> {
-                    ((UriSpec<?>) uriBuilder).uri(config.getApiUrl());
-                    queryParams.forEach(uriBuilder::queryParam);
-                    return uriBuilder.build();
-                });
+                WebClient.RequestBodySpec putSpec = webClient.put().uri(uri);
                 // Set request body if provided
-                if (config.getRequestBody() != null && !config.getRequestBody().isEmpty()) {
-                    requestSpec = putSpec.bodyValue(config.getRequestBody());
+                if (requestBody != null && !requestBody.isEmpty()) {
+                    requestSpec = putSpec.bodyValue(requestBody);
                 } else {
                     requestSpec = putSpec;
                 }
                 break;
-                
+
             default:
-                throw new IllegalArgumentException("Unsupported HTTP method: " + config.getHttpMethod());
+                throw new IllegalArgumentException("Unsupported HTTP method: " + httpMethod);
         }
 
         // Set headers
-        headers.forEach(requestSpec::header);
+        config.getHeaders().forEach(requestSpec::header);
+        extraHeaders.forEach(requestSpec::header);
         requestSpec.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
 
         return requestSpec;
     }
 
     /**
-     * Extract user data from API response using the configured data path
+     * Fail the response once its body exceeds the profile's max response size.
+     * Bytes are counted after decompression, as they reach the parser.
      */
-    private List<Map<String, Object>> extractUserData(String responseBody, String dataPath) {
-        try {
-            JsonNode rootNode = objectMapper.readTree(responseBody);
-            JsonNode dataNode = rootNode;
-
-            // Navigate to the data using the path (e.g., "data.users" or "collection")
-            if (dataPath != null && !dataPath.isEmpty()) {
-                String[] pathSegments = dataPath.split("\\.");
-                for (String segment : pathSegments) {
-                    dataNode = dataNode.get(segment);
-                    if (dataNode == null) {
-                        log.warn("Data path segment '{}' not found in response", segment);
-                        return new ArrayList<>();
-                    }
+    private Flux<DataBuffer> limitSize(ResolvedConfiguration config, Flux<DataBuffer> body) {
+        Long maxBytes = config.getTransport().getMaxResponseBytes();
+        if (maxBytes == null) {
+            return body;
+        }
+        return Flux.defer(() -> {
+            long[] received = {0};
+            return body.handle((buffer, sink) -> {
+                received[0] += buffer.readableByteCount();
+                if (received[0] > maxBytes) {
+                    DataBufferUtils.release(buffer);
+                    sink.error(new DataBufferLimitException(
+                            "Response from " + config.getSystemName() + " exceeds " + maxBytes + " bytes"));
+                } else {
+                    sink.next(buffer);
                 }
-            }
+            });
+        });
+    }
 
-            // Convert to list of maps
-            if (dataNode.isArray()) {
-                return objectMapper.convertValue(dataNode, new TypeReference<>() {});
-            } else {
-                // Single object - wrap in list
-                Map<String, Object> singleItem = objectMapper.convertValue(dataNode, new TypeReference<>() {});
-                return List.of(singleItem);
+    /**
+     * Push one chunk of the response body through the streaming parser
+     */
+    private List<RawRecord> feed(
+            JsonRecordStreamer streamer,
+            DataBuffer buffer,
+            SpoolWriter spool) {
+        try {
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            if (spool != null) {
+                spool.write(bytes, 0, bytes.length);
             }
+            return streamer.feed(bytes, 0, bytes.length);
+        } catch (IOException e) {
+            log.error("Error parsing API response", e);
+            throw new UncheckedIOException("Failed to parse API response: " + e.getMessage(), e);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
 
-        } catch (Exception e) {
+    private List<RawRecord> endOfInput(JsonRecordStreamer streamer) {
+        try {
+            return streamer.endOfInput();
+        } catch (IOException e) {
             log.error("Error parsing API response", e);
-            throw new RuntimeException("Failed to parse API response: " + e.getMessage(), e);
+            throw new UncheckedIOException("Failed to parse API response: " + e.getMessage(), e);
         }
     }
 
-    /**
-     * Helper method to parse JSON string to Map
-     */
-    private Map<String, String> parseJsonToMap(String json) {
-        if (json == null || json.isEmpty() || "{}".equals(json)) {
-            return Map.of();
+    private static void beginPage(SpoolWriter spool) {
+        if (spool != null) {
+            spool.beginPage();
         }
-        try {
-            return objectMapper.readValue(json, new TypeReference<>() {});
-        } catch (Exception e) {
-            log.warn("Failed to parse JSON: {}", json, e);
-            return Map.of();
+    }
+
+    private static void endPage(SpoolWriter spool) {
+        if (spool != null) {
+            spool.endPage();
         }
     }
+
+    private static void abortPage(SpoolWriter spool) {
+        if (spool != null) {
+            spool.abortPage();
+        }
+    }
+
+    private record PageRequest(int number, int offset, int page, String url, String cursor) {
+    }
 }
@@ -0,0 +1,232 @@
+package com.example.integration.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Incremental JSON parser that walks an API response chunk by chunk and emits the
+ * records found under the configured data path as soon as each one is complete.
+ * <p>
+ * Only the record currently being read is buffered, so memory per sync is bounded
+ * by the largest record rather than by the size of the payload. Everything outside
+ * the data path is skipped token by token without being materialized, except for
+ * scalar values at the requested capture paths (e.g. pagination cursors).
+ */
+@Slf4j
+public class JsonRecordStreamer implements AutoCloseable {
+
+    private static final TypeReference<Map<String, Object>> RECORD_TYPE = new TypeReference<>() {};
+
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+    private final String dataPath;
+    private final Set<String> capturePaths;
+    private final Set<String> pathPrefixes;
+    private final Map<String, String> captured = new HashMap<>();
+
+    private final Deque<Container> containers = new ArrayDeque<>();
+    private String fieldName;
+    private int skipDepth;
+    private TokenBuffer record;
+    private int recordDepth;
+    private boolean dataPathFound;
+
+    public JsonRecordStreamer(ObjectMapper objectMapper, String dataPath) throws IOException {
+        this(objectMapper, dataPath, Set.of());
+    }
+
+    public JsonRecordStreamer(ObjectMapper objectMapper, String dataPath, Set<String> capturePaths)
+            throws IOException {
+        this.objectMapper = objectMapper;
+        this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        this.dataPath = dataPath == null ? "" : dataPath;
+        this.capturePaths = capturePaths;
+        this.pathPrefixes = prefixesOf(this.dataPath);
+        capturePaths.forEach(path -> pathPrefixes.addAll(prefixesOf(path)));
+    }
+
+    /**
+     * Feed the next chunk of the response body and return the records it completed
+     */
+    public List<RawRecord> feed(byte[] bytes, int offset, int length) throws IOException {
+        feeder.feedInput(bytes, offset, offset + length);
+        return drain();
+    }
+
+    /**
+     * Signal the end of the response body and return any records still pending
+     */
+    public List<RawRecord> endOfInput() throws IOException {
+        feeder.endOfInput();
+        List<RawRecord> records = drain();
+        if (record != null) {
+            throw new IOException("Response body ended in the middle of a record");
+        }
+        if (!dataPathFound) {
+            log.warn("Data path '{}' not found in response", dataPath);
+        }
+        return records;
+    }
+
+    public boolean isDataPathFound() {
+        return dataPathFound;
+    }
+
+    /**
+     * Scalar value seen at one of the capture paths, or null if it was absent or null
+     */
+    public String getCaptured(String path) {
+        return captured.get(path);
+    }
+
+    @Override
+    public void close() {
+        try {
+            parser.close();
+        } catch (IOException e) {
+            log.debug("Failed to close streaming parser", e);
+        }
+    }
+
+    private List<RawRecord> drain() throws IOException {
+        List<RawRecord> records = null;
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            RawRecord completed = onToken(token);
+            if (completed != null) {
+                if (records == null) {
+                    records = new ArrayList<>();
+                }
+                records.add(completed);
+            }
+        }
+        return records == null ? List.of() : records;
+    }
+
+    private RawRecord onToken(JsonToken token) throws IOException {
+        // Inside a record: copy tokens until its closing brace
+        if (record != null) {
+            record.copyCurrentEvent(parser);
+            if (token.isStructStart()) {
+                recordDepth++;
+            } else if (token.isStructEnd() && --recordDepth == 0) {
+                return completeRecord();
+            }
+            return null;
+        }
+
+        // Inside a subtree we are not interested in
+        if (skipDepth > 0) {
+            if (token.isStructStart()) {
+                skipDepth++;
+            } else if (token.isStructEnd()) {
+                skipDepth--;
+            }
+            return null;
+        }
+
+        if (token == JsonToken.FIELD_NAME) {
+            fieldName = parser.currentName();
+            return null;
+        }
+        if (token.isStructEnd()) {
+            containers.pop();
+            return null;
+        }
+
+        Container parent = containers.peek();
+        if (parent != null && parent.records) {
+            // Element of the data array
+            if (token == JsonToken.START_OBJECT) {
+                startRecord();
+            } else if (token.isStructStart()) {
+                skipDepth = 1;
+            }
+            return null;
+        }
+        if (parent != null && !parent.object) {
+            // Paths do not descend into arrays other than the data array
+            if (token.isStructStart()) {
+                skipDepth = 1;
+            }
+            return null;
+        }
+
+        String path = parent == null ? "" : parent.child(fieldName);
+        if (path.equals(dataPath)) {
+            dataPathFound = true;
+            if (token == JsonToken.START_ARRAY) {
+                containers.push(new Container(path, false, true));
+            } else if (token == JsonToken.START_OBJECT) {
+                // Single object - emitted as one record
+                startRecord();
+            }
+            return null;
+        }
+        if (token.isScalarValue() && capturePaths.contains(path)) {
+            captured.put(path, token == JsonToken.VALUE_NULL ? null : parser.getText());
+            return null;
+        }
+        if (token == JsonToken.START_OBJECT && pathPrefixes.contains(path)) {
+            containers.push(new Container(path, true, false));
+        } else if (token.isStructStart()) {
+            skipDepth = 1;
+        }
+        return null;
+    }
+
+    private void startRecord() throws IOException {
+        record = new TokenBuffer(parser, null);
+        record.copyCurrentEvent(parser);
+        recordDepth = 1;
+    }
+
+    private RawRecord completeRecord() throws IOException {
+        TokenBuffer tokens = record;
+        record = null;
+        try (JsonParser recordParser = tokens.asParser()) {
+            return new RawRecord(objectMapper.readValue(recordParser, RECORD_TYPE), tokens);
+        }
+    }
+
+    /**
+     * All proper prefixes of a dotted path, including the root ("")
+     */
+    private static Set<String> prefixesOf(String path) {
+        Set<String> prefixes = new HashSet<>();
+        if (path.isEmpty()) {
+            return prefixes;
+        }
+        prefixes.add("");
+        int dot = path.indexOf('.');
+        while (dot >= 0) {
+            prefixes.add(path.substring(0, dot));
+            dot = path.indexOf('.', dot + 1);
+        }
+        return prefixes;
+    }
+
+    private record Container(String path, boolean object, boolean records) {
+
+        String child(String name) {
+            return path.isEmpty() ? name : path + "." + name;
+        }
+    }
+}
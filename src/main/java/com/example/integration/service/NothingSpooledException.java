@@ -0,0 +1,11 @@
+package com.example.integration.service;
+
+/**
+ * Thrown for a remap of a system that has no complete full sync run in the spool
+ */
+public class NothingSpooledException extends RuntimeException {
+
+    public NothingSpooledException(String systemName) {
+        super("No spooled sync run for system: " + systemName);
+    }
+}
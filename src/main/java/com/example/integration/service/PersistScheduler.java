@@ -0,0 +1,43 @@
+package com.example.integration.service;
+
+import com.example.integration.config.IntegrationProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Bounded pool for the blocking database calls of non-blocking syncs.
+ * <p>
+ * Fetching, parsing and mapping run on the HTTP client's event loop; only the
+ * JDBC work is handed to these few threads, so the number of syncs in flight is
+ * not limited by the number of threads.
+ */
+@Component
+public class PersistScheduler {
+
+    private final Scheduler scheduler;
+
+    public PersistScheduler(IntegrationProperties properties) {
+        IntegrationProperties.Sync settings = properties.getSync();
+        this.scheduler = Schedulers.newBoundedElastic(
+                settings.getPersistThreads(),
+                settings.getPersistQueueCapacity(),
+                "sync-persist");
+    }
+
+    /**
+     * Run a blocking call on the pool
+     */
+    public <T> Mono<T> call(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(scheduler);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.dispose();
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.integration.service;
+
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.util.Map;
+
+/**
+ * One record emitted by {@link JsonRecordStreamer}: its values for the field
+ * mappings, plus the tokens it was parsed from so it can be re-encoded without
+ * walking the map again
+ */
+public record RawRecord(Map<String, Object> fields, TokenBuffer tokens) {
+}
@@ -0,0 +1,42 @@
+package com.example.integration.service;
+
+import com.example.integration.model.ApiConfiguration;
+import com.example.integration.model.PaginationSettings;
+import com.example.integration.model.RateLimitSettings;
+import com.example.integration.model.TransportSettings;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Fully parsed, immutable form of an active {@link ApiConfiguration}: the JSON
+ * columns are decoded and the field mappings compiled once, when the
+ * configuration is loaded into {@link ApiConfigurationCache}.
+ */
+@Value
+@Builder
+public class ResolvedConfiguration {
+
+    Long id;
+    String systemName;
+    String apiUrl;
+    String httpMethod;
+    Map<String, String> headers;
+    Map<String, String> queryParams;
+    String requestBody;
+    String dataPath;
+    String webhookSecret; // Null when webhooks are refused
+    String webhookDataPath;
+    PaginationSettings pagination;
+    TransportSettings transport;
+    RateLimitSettings rateLimit;
+    FieldMappingPlan mappingPlan;
+    EnrichmentPlan enrichment; // Null when records are used as listed
+    String watermarkParam;
+    Integer responseCacheTtlSeconds; // Null when list responses are not cached
+    Integer syncTimeoutSeconds;
+    SyncSchedule schedule; // Null when the system is only synced on demand
+    LocalDateTime updatedAt;
+}
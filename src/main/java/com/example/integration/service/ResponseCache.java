@@ -0,0 +1,209 @@
+package com.example.integration.service;
+
+import com.example.integration.config.IntegrationProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-memory cache of list responses from external APIs, so repeated syncs of an
+ * unchanged system do not download the same payload again.
+ * <p>
+ * Entries are keyed by the rendered request: method, URI (query params included)
+ * and a hash of the headers and body. A response is served from memory for the
+ * system's {@code responseCacheTtlSeconds}; after that it is revalidated with
+ * {@code If-None-Match} / {@code If-Modified-Since} when the vendor sent an
+ * {@code ETag} or {@code Last-Modified}, and a 304 reuses the cached body.
+ * <p>
+ * The least recently used entries are evicted once the bodies exceed
+ * {@code max-size}; bodies larger than {@code max-entry-size} are not cached.
+ */
+@Component
+public class ResponseCache {
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+
+    // Access order, so the eldest entry is the least recently used
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long storedBytes;
+
+    public ResponseCache(IntegrationProperties properties, MeterRegistry registry) {
+        IntegrationProperties.ResponseCache settings = properties.getResponseCache();
+        this.maxBytes = settings.getMaxSize().toBytes();
+        this.maxEntryBytes = settings.getMaxEntrySize().toBytes();
+
+        Gauge.builder("integration.http.cache.size", this, ResponseCache::getStoredBytes)
+                .description("Response body bytes held by the external API response cache")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("integration.http.cache.entries", this, ResponseCache::getEntryCount)
+                .description("Responses held by the external API response cache")
+                .register(registry);
+    }
+
+    /**
+     * Cache key of a rendered request
+     */
+    public record Key(String method, String uri, long variant) {
+
+        public static Key of(String method, URI uri, Map<String, String> headers, String body) {
+            // Sorted, so the same headers in another order hit the same entry
+            StringBuilder variant = new StringBuilder();
+            new TreeMap<>(headers).forEach((name, value) ->
+                    variant.append(name.toLowerCase(Locale.ROOT)).append(':').append(value).append('\n'));
+            variant.append('\n');
+            if (body != null) {
+                variant.append(body);
+            }
+            return new Key(method.toUpperCase(Locale.ROOT), uri.toString(), ContentHash.of(variant));
+        }
+    }
+
+    /**
+     * A cached response; the body is shared and must not be modified
+     */
+    public record Entry(byte[] body, HttpHeaders headers, String etag, String lastModified, long expiresAt) {
+
+        public boolean isFresh() {
+            return System.nanoTime() - expiresAt < 0;
+        }
+
+        public boolean canRevalidate() {
+            return etag != null || lastModified != null;
+        }
+
+        /**
+         * Headers that ask the vendor to answer 304 if this entry is still current
+         */
+        public Map<String, String> conditionalHeaders() {
+            Map<String, String> headers = new LinkedHashMap<>();
+            if (etag != null) {
+                headers.put(HttpHeaders.IF_NONE_MATCH, etag);
+            }
+            if (lastModified != null) {
+                headers.put(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+            }
+            return headers;
+        }
+
+        private Entry renew(Duration ttl) {
+            return new Entry(body, headers, etag, lastModified, System.nanoTime() + ttl.toNanos());
+        }
+    }
+
+    /**
+     * Entry for a request, fresh or revalidatable
+     *
+     * @return The entry, or null if there is none worth using
+     */
+    public synchronized Entry get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.isFresh() && !entry.canRevalidate()) {
+            remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Mark an entry as current again after the vendor answered 304
+     */
+    public synchronized Entry renew(Key key, Entry entry, Duration ttl) {
+        Entry renewed = entry.renew(ttl);
+        if (entries.containsKey(key)) {
+            entries.put(key, renewed);
+        }
+        return renewed;
+    }
+
+    /**
+     * Start capturing a response body for the cache
+     */
+    public Recording record(Key key, HttpHeaders headers, Duration ttl) {
+        return new Recording(key, headers, ttl);
+    }
+
+    public synchronized long getStoredBytes() {
+        return storedBytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    private synchronized void put(Key key, Entry entry) {
+        remove(key);
+        entries.put(key, entry);
+        storedBytes += entry.body().length;
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (storedBytes > maxBytes && eldest.hasNext()) {
+            storedBytes -= eldest.next().getValue().body().length;
+            eldest.remove();
+        }
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            storedBytes -= removed.body().length;
+        }
+    }
+
+    /**
+     * Copy of a response body as it streams to the parser; stored once the body is
+     * complete, dropped if it grows beyond the entry size limit
+     */
+    public final class Recording {
+
+        private final Key key;
+        private final HttpHeaders headers;
+        private final Duration ttl;
+        private ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        private Recording(Key key, HttpHeaders headers, Duration ttl) {
+            this.key = key;
+            this.headers = HttpHeaders.readOnlyHttpHeaders(new HttpHeaders(headers));
+            this.ttl = ttl;
+        }
+
+        public void append(DataBuffer buffer) {
+            if (body == null) {
+                return;
+            }
+            if (body.size() + buffer.readableByteCount() > maxEntryBytes) {
+                body = null;
+                return;
+            }
+            try (DataBuffer.ByteBufferIterator buffers = buffer.readableByteBuffers()) {
+                while (buffers.hasNext()) {
+                    ByteBuffer chunk = buffers.next();
+                    byte[] bytes = new byte[chunk.remaining()];
+                    chunk.get(bytes);
+                    body.write(bytes, 0, bytes.length);
+                }
+            }
+        }
+
+        public void complete() {
+            if (body == null) {
+                return;
+            }
+            put(key, new Entry(body.toByteArray(), headers, headers.getETag(),
+                    headers.getFirst(HttpHeaders.LAST_MODIFIED), System.nanoTime() + ttl.toNanos()));
+            body = null;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.integration.service;
+
+import com.example.integration.config.IntegrationProperties;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Local disk spool of the raw response pages of each sync run, so a fixed field
+ * mapping can be applied again without calling the vendor.
+ * <p>
+ * Runs live in {@code <directory>/<system>/<run>/} as compressed segment files
+ * (see {@link SpoolWriter}) plus a marker with the time the run completed. Completing
+ * a full run deletes every older run of the system; incremental runs are kept on top
+ * of it and replayed after it. Replayed pages come with their run's completion time,
+ * so users written after the run, by a webhook for example, can be kept as they are.
+ * <p>
+ * Replays memory-map the segments and hand the pages of a run to a worker pool in
+ * contiguous chunks, one per worker.
+ */
+@Component
+@Slf4j
+public class ResponseSpool {
+
+    private final IntegrationProperties.Spool settings;
+    private final Path directory;
+    private final int parallelism;
+    private final ExecutorService replayExecutor;
+
+    public ResponseSpool(IntegrationProperties properties) {
+        this.settings = properties.getSpool();
+        this.directory = Paths.get(settings.getDirectory());
+        this.parallelism = settings.getReplayParallelism() > 0
+                ? settings.getReplayParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threads = new AtomicInteger();
+        this.replayExecutor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "spool-replay-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Called for every spooled page with its decompressed body and the time its run
+     * completed (null for runs spooled without one)
+     */
+    @FunctionalInterface
+    public interface PageHandler {
+        void handle(InputStream page, LocalDateTime completedAt) throws IOException;
+    }
+
+    /**
+     * Outcome of a replay
+     */
+    public record Replay(List<String> runs, int pages) {
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    /**
+     * Start spooling a sync run
+     *
+     * @return Writer for the run's pages, or null when spooling is disabled or the
+     *         run directory cannot be created
+     */
+    public SpoolWriter openRun(String systemName, boolean incremental) {
+        if (!settings.isEnabled()) {
+            return null;
+        }
+        Path systemDirectory = systemDirectory(systemName);
+        try {
+            // Runs sort by name in the order they were started
+            Path runDirectory = systemDirectory.resolve(String.format("%013d-%s",
+                    System.currentTimeMillis(), incremental ? "incremental" : "full"));
+            Files.createDirectories(runDirectory);
+            return new SpoolWriter(runDirectory, settings.getSegmentSize().toBytes(), incremental);
+        } catch (IOException e) {
+            log.warn("Cannot spool sync run of {}: {}", systemName, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Seal a finished run; a full run makes all older runs of the system obsolete
+     */
+    public void complete(String systemName, SpoolWriter writer) {
+        if (!writer.complete()) {
+            return;
+        }
+        log.info("Spooled {} pages of {} to {}", writer.getPages(), systemName, writer.getRunDirectory());
+        if (!writer.isIncremental()) {
+            String current = writer.getRunDirectory().getFileName().toString();
+            for (Path run : runs(systemName)) {
+                if (run.getFileName().toString().compareTo(current) < 0) {
+                    deleteRun(run);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replay the latest complete full run of a system and the incremental runs after
+     * it, oldest first. Pages of one run are handled in parallel; a run starts only
+     * once the previous one is done.
+     *
+     * @throws NothingSpooledException if no complete full run is spooled for the system
+     */
+    public Replay replay(String systemName, PageHandler handler) throws IOException {
+        List<Path> complete = runs(systemName).stream()
+                .filter(run -> Files.exists(run.resolve(SpoolWriter.COMPLETE_MARKER)))
+                .toList();
+        int full = -1;
+        for (int i = 0; i < complete.size(); i++) {
+            if (!isIncremental(complete.get(i))) {
+                full = i;
+            }
+        }
+        if (full < 0) {
+            throw new NothingSpooledException(systemName);
+        }
+
+        List<String> replayed = new ArrayList<>();
+        int pages = 0;
+        for (Path run : complete.subList(full, complete.size())) {
+            pages += replayRun(run, handler);
+            replayed.add(run.getFileName().toString());
+        }
+        return new Replay(replayed, pages);
+    }
+
+    private int replayRun(Path run, PageHandler handler) throws IOException {
+        LocalDateTime completedAt = completedAt(run);
+        List<ByteBuffer> frames = frames(run);
+        int chunkSize = Math.max(1, (frames.size() + parallelism - 1) / parallelism);
+
+        List<Future<?>> chunks = new ArrayList<>();
+        for (int from = 0; from < frames.size(); from += chunkSize) {
+            List<ByteBuffer> chunk = frames.subList(from, Math.min(from + chunkSize, frames.size()));
+            chunks.add(replayExecutor.submit(() -> {
+                for (ByteBuffer frame : chunk) {
+                    // A stream given its own inflater does not end it on close
+                    Inflater inflater = new Inflater();
+                    try (InputStream page = new InflaterInputStream(
+                            new ByteBufferBackedInputStream(frame), inflater, 64 * 1024)) {
+                        handler.handle(page, completedAt);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } finally {
+                        inflater.end();
+                    }
+                }
+            }));
+        }
+
+        try {
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+        } catch (InterruptedException e) {
+            chunks.forEach(chunk -> chunk.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while replaying " + run, e);
+        } catch (ExecutionException e) {
+            chunks.forEach(chunk -> chunk.cancel(true));
+            Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+            throw new IOException("Failed to replay " + run + ": " + cause.getMessage(), cause);
+        }
+        return frames.size();
+    }
+
+    /**
+     * Compressed body of every page in a run, as views of the memory-mapped segments
+     */
+    private List<ByteBuffer> frames(Path run) throws IOException {
+        List<ByteBuffer> frames = new ArrayList<>();
+        for (int index = 0; Files.exists(segmentPath(run, index)); index++) {
+            MappedByteBuffer segment;
+            try (FileChannel channel = FileChannel.open(segmentPath(run, index))) {
+                // The mapping stays valid after the channel is closed
+                segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            int position = 0;
+            while (position + SpoolWriter.FRAME_HEADER_BYTES <= segment.limit()) {
+                int compressedLength = segment.getInt(position + Integer.BYTES);
+                int start = position + SpoolWriter.FRAME_HEADER_BYTES;
+                if (compressedLength < 0 || start + compressedLength > segment.limit()) {
+                    throw new IOException("Corrupt spool segment " + segmentPath(run, index) + " at " + position);
+                }
+                frames.add(segment.slice(start, compressedLength));
+                position = start + compressedLength;
+            }
+        }
+        return frames;
+    }
+
+    private List<Path> runs(String systemName) {
+        Path systemDirectory = systemDirectory(systemName);
+        if (!Files.isDirectory(systemDirectory)) {
+            return List.of();
+        }
+        try (Stream<Path> runs = Files.list(systemDirectory)) {
+            return runs.filter(Files::isDirectory)
+                    .sorted(Comparator.comparing(run -> run.getFileName().toString()))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list spool runs of " + systemName, e);
+        }
+    }
+
+    private static boolean isIncremental(Path run) {
+        return marker(run).get(0).equals("incremental");
+    }
+
+    private static LocalDateTime completedAt(Path run) {
+        List<String> marker = marker(run);
+        return marker.size() > 2 ? LocalDateTime.parse(marker.get(2)) : null;
+    }
+
+    /**
+     * Kind, page count and completion time of a complete run, one per line
+     */
+    private static List<String> marker(Path run) {
+        try {
+            return Files.readAllLines(run.resolve(SpoolWriter.COMPLETE_MARKER), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read spool marker of " + run, e);
+        }
+    }
+
+    private Path systemDirectory(String systemName) {
+        // System names come from configurations; keep them from escaping the spool directory
+        return directory.resolve(systemName.replaceAll("[^A-Za-z0-9_-]", "_"));
+    }
+
+    static Path segmentPath(Path run, int index) {
+        return run.resolve(String.format("segment-%05d.spool", index));
+    }
+
+    static void deleteRun(Path run) {
+        try (Stream<Path> files = Files.walk(run)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("Cannot delete spool file {}: {}", file, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Cannot delete spool run {}: {}", run, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        replayExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.integration.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.zip.Deflater;
+
+/**
+ * Appends the raw response pages of one sync run to its spool directory.
+ * <p>
+ * Each page becomes one frame: raw length and compressed length as two ints,
+ * followed by the deflated body. Frames go into segment files that roll over at
+ * the configured size. Pages arrive one after the other; a page that is aborted
+ * (e.g. to be retried) is truncated away again.
+ * <p>
+ * Spooling never fails the sync: after an I/O error the writer stops and the run
+ * is discarded on close.
+ */
+@Slf4j
+public class SpoolWriter implements AutoCloseable {
+
+    static final int FRAME_HEADER_BYTES = 2 * Integer.BYTES;
+    static final String COMPLETE_MARKER = "COMPLETE";
+
+    private final Path runDirectory;
+    private final long segmentSize;
+    private final boolean incremental;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final byte[] buffer = new byte[64 * 1024];
+
+    private FileChannel segment;
+    private int segmentIndex;
+    private long frameStart = -1;
+    private long rawLength;
+    private int pages;
+    private boolean failed;
+    private boolean completed;
+
+    SpoolWriter(Path runDirectory, long segmentSize, boolean incremental) {
+        this.runDirectory = runDirectory;
+        this.segmentSize = segmentSize;
+        this.incremental = incremental;
+    }
+
+    synchronized void beginPage() {
+        if (failed) {
+            return;
+        }
+        abortPage();
+        try {
+            if (segment == null) {
+                segment = FileChannel.open(ResponseSpool.segmentPath(runDirectory, segmentIndex),
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            }
+            frameStart = segment.position();
+            writeFully(ByteBuffer.allocate(FRAME_HEADER_BYTES));
+            deflater.reset();
+            rawLength = 0;
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    synchronized void write(byte[] bytes, int offset, int length) {
+        if (failed || frameStart < 0) {
+            return;
+        }
+        try {
+            deflater.setInput(bytes, offset, length);
+            while (!deflater.needsInput()) {
+                deflate();
+            }
+            rawLength += length;
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    synchronized void endPage() {
+        if (failed || frameStart < 0) {
+            return;
+        }
+        try {
+            deflater.finish();
+            while (!deflater.finished()) {
+                deflate();
+            }
+            long compressedLength = segment.position() - frameStart - FRAME_HEADER_BYTES;
+            if (rawLength > Integer.MAX_VALUE || compressedLength > Integer.MAX_VALUE) {
+                throw new IOException("Page of " + rawLength + " bytes is too large to spool");
+            }
+            ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_BYTES)
+                    .putInt((int) rawLength)
+                    .putInt((int) compressedLength)
+                    .flip();
+            while (header.hasRemaining()) {
+                segment.write(header, frameStart + header.position());
+            }
+            frameStart = -1;
+            pages++;
+
+            if (segment.position() >= segmentSize) {
+                segment.close();
+                segment = null;
+                segmentIndex++;
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Drop the page being written, if any
+     */
+    synchronized void abortPage() {
+        if (failed || frameStart < 0) {
+            return;
+        }
+        try {
+            segment.truncate(frameStart);
+            segment.position(frameStart);
+            frameStart = -1;
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Seal the run so it can be replayed
+     *
+     * @return False if the run could not be spooled completely
+     */
+    synchronized boolean complete() {
+        abortPage();
+        if (failed) {
+            return false;
+        }
+        try {
+            if (segment != null) {
+                segment.force(true);
+                segment.close();
+                segment = null;
+            }
+            // Every user of the run was stored by now, so anything written later is newer
+            String marker = (incremental ? "incremental" : "full") + "\n" + pages + "\n" + LocalDateTime.now() + "\n";
+            Files.writeString(runDirectory.resolve(COMPLETE_MARKER), marker, StandardCharsets.UTF_8);
+            completed = true;
+            return true;
+        } catch (IOException e) {
+            fail(e);
+            return false;
+        }
+    }
+
+    Path getRunDirectory() {
+        return runDirectory;
+    }
+
+    boolean isIncremental() {
+        return incremental;
+    }
+
+    int getPages() {
+        return pages;
+    }
+
+    /**
+     * Release the segment and delete the run unless it was completed
+     */
+    @Override
+    public synchronized void close() {
+        deflater.end();
+        try {
+            if (segment != null) {
+                segment.close();
+            }
+        } catch (IOException e) {
+            log.debug("Failed to close spool segment", e);
+        }
+        if (!completed) {
+            ResponseSpool.deleteRun(runDirectory);
+        }
+    }
+
+    private void deflate() throws IOException {
+        int length = deflater.deflate(buffer, 0, buffer.length);
+        if (length > 0) {
+            writeFully(ByteBuffer.wrap(buffer, 0, length));
+        }
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            segment.write(bytes);
+        }
+    }
+
+    private void fail(IOException e) {
+        log.warn("Stopped spooling to {}: {}", runDirectory, e.getMessage());
+        failed = true;
+    }
+}
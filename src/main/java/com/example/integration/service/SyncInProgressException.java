@@ -0,0 +1,11 @@
+package com.example.integration.service;
+
+/**
+ * Thrown instead of remapping a system while a sync of it is queued or running
+ */
+public class SyncInProgressException extends RuntimeException {
+
+    public SyncInProgressException(String systemName) {
+        super("A sync of " + systemName + " is running, remap it once that has finished");
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.integration.service;
+
+import com.example.integration.dto.SyncJobStatus;
+import com.example.integration.dto.SyncProgressSnapshot;
+import com.example.integration.dto.UserSyncResponse;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+/**
+ * A sync submitted through the job API, with the progress of every system it covers
+ */
+class SyncJob {
+
+    enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        CANCELLED
+    }
+
+    private final String id;
+    private final String target;
+    private final Instant submittedAt = Instant.now();
+    private final Map<String, SyncProgress> progress = new ConcurrentHashMap<>();
+
+    private volatile State state = State.QUEUED;
+    private volatile boolean cancelled;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile List<UserSyncResponse> results;
+    private volatile Future<?> future;
+
+    SyncJob(String id, String target) {
+        this.id = id;
+        this.target = target;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    String getTarget() {
+        return target;
+    }
+
+    Future<?> getFuture() {
+        return future;
+    }
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    boolean isFinished() {
+        return finishedAt != null;
+    }
+
+    Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * Progress for one system of this job; systems that start after the job was
+     * cancelled are cancelled right away
+     */
+    SyncProgress progressFor(String systemName) {
+        SyncProgress systemProgress = progress.computeIfAbsent(systemName, SyncProgress::new);
+        if (cancelled) {
+            systemProgress.cancel();
+        }
+        return systemProgress;
+    }
+
+    /**
+     * Move to RUNNING unless the job was cancelled while queued
+     */
+    synchronized boolean tryStart() {
+        if (cancelled) {
+            return false;
+        }
+        startedAt = Instant.now();
+        state = State.RUNNING;
+        return true;
+    }
+
+    void finished(List<UserSyncResponse> responses) {
+        results = responses;
+        finish(cancelled ? State.CANCELLED
+                : responses.stream().allMatch(UserSyncResponse::isSuccess) ? State.COMPLETED
+                : State.FAILED);
+    }
+
+    void failed() {
+        finish(cancelled ? State.CANCELLED : State.FAILED);
+    }
+
+    /**
+     * Cancel the job and all of its running systems
+     *
+     * @return true if the job had not started yet and is now finished
+     */
+    synchronized boolean cancel() {
+        cancelled = true;
+        progress.values().forEach(SyncProgress::cancel);
+        if (state == State.QUEUED) {
+            finish(State.CANCELLED);
+            return true;
+        }
+        return false;
+    }
+
+    private void finish(State finalState) {
+        finishedAt = Instant.now();
+        state = finalState;
+    }
+
+    SyncJobStatus status() {
+        return SyncJobStatus.builder()
+                .jobId(id)
+                .target(target)
+                .state(state.name())
+                .submittedAt(submittedAt)
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .progress(progress.values().stream()
+                        .map(SyncProgress::snapshot)
+                        .sorted(Comparator.comparing(SyncProgressSnapshot::getSystemName))
+                        .toList())
+                .results(results)
+                .build();
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.integration.service;
+
+import com.example.integration.config.IntegrationProperties;
+import com.example.integration.dto.SyncJobStatus;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs syncs in the background so that callers get a job ID back immediately
+ * instead of holding an HTTP request open for the whole sync.
+ * <p>
+ * Jobs run on a fixed pool with a bounded queue. When the queue is full new jobs
+ * are rejected rather than piling up, so a burst of triggers cannot overload the node.
+ */
+@Service
+@Slf4j
+public class SyncJobService {
+
+    public static final String ALL_SYSTEMS = "all";
+
+    private final UserSyncService userSyncService;
+    private final IntegrationProperties properties;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, SyncJob> jobs = new ConcurrentHashMap<>();
+
+    public SyncJobService(UserSyncService userSyncService, IntegrationProperties properties) {
+        this.userSyncService = userSyncService;
+        this.properties = properties;
+
+        IntegrationProperties.Jobs settings = properties.getJobs();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                settings.getWorkers(),
+                settings.getWorkers(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(settings.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "sync-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queue a sync of one system, or of all active systems for {@link #ALL_SYSTEMS}
+     *
+     * @throws RejectedExecutionException if the job queue is full
+     */
+    public SyncJobStatus submit(String target) {
+        purgeFinishedJobs();
+
+        SyncJob job = new SyncJob(UUID.randomUUID().toString(), target);
+        jobs.put(job.getId(), job);
+        try {
+            job.setFuture(executor.submit(() -> run(job)));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            log.warn("Rejected sync job for {}: {} jobs already queued", target, executor.getQueue().size());
+            throw e;
+        }
+        log.info("Queued sync job {} for {}", job.getId(), target);
+        return job.status();
+    }
+
+    public Optional<SyncJobStatus> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(SyncJob::status);
+    }
+
+    /**
+     * Whether a queued or running job covers the given system
+     */
+    public boolean isSystemBusy(String systemName) {
+        return jobs.values().stream()
+                .anyMatch(job -> !job.isFinished()
+                        && (job.getTarget().equals(systemName) || job.getTarget().equals(ALL_SYSTEMS)));
+    }
+
+    /**
+     * All known jobs, most recent first
+     */
+    public List<SyncJobStatus> getJobs() {
+        return jobs.values().stream()
+                .map(SyncJob::status)
+                .sorted(Comparator.comparing(SyncJobStatus::getSubmittedAt).reversed())
+                .toList();
+    }
+
+    /**
+     * Cancel a job. A queued job is dropped; a running job stops fetching and
+     * returns after committing the chunk it is writing.
+     */
+    public Optional<SyncJobStatus> cancel(String jobId) {
+        SyncJob job = jobs.get(jobId);
+        if (job == null) {
+            return Optional.empty();
+        }
+        if (!job.isFinished()) {
+            if (job.cancel() && job.getFuture() instanceof Runnable queued) {
+                // Never started - free its queue slot
+                executor.remove(queued);
+            }
+            log.info("Cancelled sync job {}", jobId);
+        }
+        return Optional.of(job.status());
+    }
+
+    private void run(SyncJob job) {
+        if (!job.tryStart()) {
+            return;
+        }
+        try {
+            if (ALL_SYSTEMS.equals(job.getTarget())) {
+                job.finished(userSyncService.syncUsersFromAllSystemsReactive(job::progressFor).collectList().block());
+            } else {
+                job.finished(List.of(userSyncService.syncUsersFromSystem(
+                        job.getTarget(), job.progressFor(job.getTarget()))));
+            }
+        } catch (Exception e) {
+            log.error("Sync job {} failed", job.getId(), e);
+            job.failed();
+        }
+    }
+
+    private void purgeFinishedJobs() {
+        Instant cutoff = Instant.now().minus(properties.getJobs().getRetention());
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.values().forEach(SyncJob::cancel);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.integration.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Micrometer meters of the sync pipeline, tagged by {@code system}.
+ * <p>
+ * Meters are registered once per system and cached, so the hot path only
+ * increments counters and records pre-measured nanos - nothing is allocated or
+ * looked up in the registry per record.
+ */
+@Component
+public class SyncMetrics {
+
+    private final MeterRegistry registry;
+    private final Map<String, SystemMeters> bySystem = new ConcurrentHashMap<>();
+
+    public SyncMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public SystemMeters forSystem(String systemName) {
+        return bySystem.computeIfAbsent(systemName, name -> new SystemMeters(registry, name));
+    }
+
+    public static final class SystemMeters {
+
+        private final Timer syncSucceeded;
+        private final Timer syncFailed;
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private final Timer httpRequest;
+        private final Counter bytesReceived;
+        private final Counter responseCacheHits;
+        private final Counter responseCacheRevalidations;
+        private final Counter responseCacheMisses;
+
+        private final Counter recordsParsed;
+        private final Counter recordsMapped;
+        private final Counter recordsPersisted;
+        private final Counter recordsFailed;
+        private final Counter recordsEnriched;
+        private final Counter recordsEnrichFailed;
+
+        private final Timer fetchPhase;
+        private final Timer mapPhase;
+        private final Timer dbBatch;
+
+        private SystemMeters(MeterRegistry registry, String systemName) {
+            syncSucceeded = Timer.builder("integration.sync.duration")
+                    .description("Duration of complete system syncs")
+                    .tags("system", systemName, "outcome", "success")
+                    .register(registry);
+            syncFailed = Timer.builder("integration.sync.duration")
+                    .description("Duration of complete system syncs")
+                    .tags("system", systemName, "outcome", "failure")
+                    .register(registry);
+            Gauge.builder("integration.sync.in.flight", inFlight, AtomicInteger::get)
+                    .description("Syncs currently running")
+                    .tag("system", systemName)
+                    .register(registry);
+
+            httpRequest = Timer.builder("integration.http.request")
+                    .description("Time until the response headers of an external API request arrived")
+                    .tag("system", systemName)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            bytesReceived = Counter.builder("integration.http.received")
+                    .description("Response body bytes received from the external API")
+                    .baseUnit("bytes")
+                    .tag("system", systemName)
+                    .register(registry);
+            responseCacheHits = responseCache(registry, systemName, "hit");
+            responseCacheRevalidations = responseCache(registry, systemName, "revalidated");
+            responseCacheMisses = responseCache(registry, systemName, "miss");
+
+            recordsParsed = records(registry, systemName, "parsed");
+            recordsMapped = records(registry, systemName, "mapped");
+            recordsPersisted = records(registry, systemName, "persisted");
+            recordsFailed = records(registry, systemName, "failed");
+            recordsEnriched = records(registry, systemName, "enriched");
+            recordsEnrichFailed = records(registry, systemName, "enrich_failed");
+
+            fetchPhase = phase(registry, systemName, "fetch");
+            mapPhase = phase(registry, systemName, "map");
+            dbBatch = Timer.builder("integration.db.batch")
+                    .description("Duration of one bulk upsert transaction (the persist phase of a sync)")
+                    .tag("system", systemName)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+
+        private static Counter records(MeterRegistry registry, String systemName, String stage) {
+            return Counter.builder("integration.records")
+                    .description("Records passing through each stage of the sync")
+                    .tags("system", systemName, "stage", stage)
+                    .register(registry);
+        }
+
+        private static Counter responseCache(MeterRegistry registry, String systemName, String outcome) {
+            return Counter.builder("integration.http.cache")
+                    .description("List requests of systems with a response cache: served from memory (hit), "
+                            + "confirmed with a 304 (revalidated) or downloaded (miss)")
+                    .tags("system", systemName, "outcome", outcome)
+                    .register(registry);
+        }
+
+        private static Timer phase(MeterRegistry registry, String systemName, String phase) {
+            return Timer.builder("integration.sync.phase")
+                    .description("Time a sync spent waiting for parsed records (fetch) and mapping them (map)")
+                    .tags("system", systemName, "phase", phase)
+                    .register(registry);
+        }
+
+        public void syncStarted() {
+            inFlight.incrementAndGet();
+        }
+
+        public void syncFinished(boolean success, long nanos) {
+            inFlight.decrementAndGet();
+            (success ? syncSucceeded : syncFailed).record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        public void httpRequest(long nanos) {
+            httpRequest.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        public void bytesReceived(int bytes) {
+            bytesReceived.increment(bytes);
+        }
+
+        public void responseCacheHit() {
+            responseCacheHits.increment();
+        }
+
+        public void responseCacheRevalidated() {
+            responseCacheRevalidations.increment();
+        }
+
+        public void responseCacheMiss() {
+            responseCacheMisses.increment();
+        }
+
+        public void recordParsed() {
+            recordsParsed.increment();
+        }
+
+        public void recordMapped() {
+            recordsMapped.increment();
+        }
+
+        public void recordsPersisted(int count) {
+            recordsPersisted.increment(count);
+        }
+
+        public void recordsFailed(int count) {
+            recordsFailed.increment(count);
+        }
+
+        public void recordsEnriched(int count) {
+            recordsEnriched.increment(count);
+        }
+
+        public void recordsEnrichFailed(int count) {
+            recordsEnrichFailed.increment(count);
+        }
+
+        public void dbBatch(long nanos) {
+            dbBatch.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Record the total fetch and map time once per sync
+         */
+        public void phases(long fetchNanos, long mapNanos) {
+            fetchPhase.record(fetchNanos, TimeUnit.NANOSECONDS);
+            mapPhase.record(mapNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
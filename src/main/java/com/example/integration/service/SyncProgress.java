@@ -0,0 +1,136 @@
+package com.example.integration.service;
+
+import com.example.integration.dto.SyncProgressSnapshot;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live progress of one system's sync, updated by the sync thread and read by
+ * status requests. Also carries the cancellation signal for that sync.
+ * <p>
+ * A request that joined a sync already running reports that sync's progress.
+ */
+public class SyncProgress {
+
+    public enum Phase {
+        QUEUED,
+        FETCHING,   // Downloading, mapping and persisting chunk by chunk
+        FINALIZING, // Deleting users missing upstream, saving the watermark
+        COMPLETED,
+        FAILED,
+        CANCELLED
+    }
+
+    private final String systemName;
+    private final AtomicLong pagesFetched = new AtomicLong();
+    private final AtomicLong recordsFetched = new AtomicLong();
+    private final AtomicLong recordsMapped = new AtomicLong();
+    private final AtomicLong recordsPersisted = new AtomicLong();
+    private final Sinks.One<Boolean> cancellation = Sinks.one();
+
+    private volatile Phase phase = Phase.QUEUED;
+    private volatile boolean cancelled;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile SyncProgress joined;
+
+    public SyncProgress(String systemName) {
+        this.systemName = systemName;
+    }
+
+    public String getSystemName() {
+        return systemName;
+    }
+
+    public Phase getPhase() {
+        SyncProgress run = joined;
+        return run != null ? run.getPhase() : phase;
+    }
+
+    /**
+     * Report the progress of the given sync, which this request joined; null to
+     * report this progress again
+     */
+    public void join(SyncProgress run) {
+        joined = run;
+    }
+
+    public void start() {
+        startedAt = System.nanoTime();
+        phase = Phase.FETCHING;
+    }
+
+    public void finalizing() {
+        phase = Phase.FINALIZING;
+    }
+
+    public void finish(Phase finalPhase) {
+        finishedAt = System.nanoTime();
+        phase = finalPhase;
+    }
+
+    public void pageFetched() {
+        pagesFetched.incrementAndGet();
+    }
+
+    public void recordFetched() {
+        recordsFetched.incrementAndGet();
+    }
+
+    public void recordMapped() {
+        recordsMapped.incrementAndGet();
+    }
+
+    public void recordsPersisted(int count) {
+        recordsPersisted.addAndGet(count);
+    }
+
+    /**
+     * Ask the sync to stop; it finishes the chunk it is writing and returns
+     */
+    public void cancel() {
+        cancelled = true;
+        cancellation.tryEmitValue(Boolean.TRUE);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Emits once the sync is cancelled, for cutting off the record stream
+     */
+    public Mono<Boolean> cancellation() {
+        return cancellation.asMono();
+    }
+
+    public SyncProgressSnapshot snapshot() {
+        SyncProgress run = joined;
+        if (run != null) {
+            return run.snapshot();
+        }
+        long elapsedMs = elapsedMillis();
+        long persisted = recordsPersisted.get();
+        return SyncProgressSnapshot.builder()
+                .systemName(systemName)
+                .phase(phase.name())
+                .pagesFetched(pagesFetched.get())
+                .recordsFetched(recordsFetched.get())
+                .recordsMapped(recordsMapped.get())
+                .recordsPersisted(persisted)
+                .elapsedMs(elapsedMs)
+                .recordsPerSecond(elapsedMs == 0 ? 0 : persisted * 1000.0 / elapsedMs)
+                .build();
+    }
+
+    private long elapsedMillis() {
+        if (startedAt == 0) {
+            return 0;
+        }
+        long end = finishedAt != 0 ? finishedAt : System.nanoTime();
+        return TimeUnit.NANOSECONDS.toMillis(end - startedAt);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.integration.service;
+
+import org.springframework.scheduling.support.CronExpression;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * When a system is synced automatically: either every fixed interval or on a
+ * cron expression (evaluated in the server's time zone)
+ */
+public record SyncSchedule(Duration interval, CronExpression cron, String description) {
+
+    /**
+     * Build the schedule of a configuration, or null if it has none
+     *
+     * @throws IllegalArgumentException if both kinds of schedule are set or either is invalid
+     */
+    public static SyncSchedule of(Integer intervalSeconds, String cron) {
+        boolean hasCron = cron != null && !cron.isBlank();
+        if (intervalSeconds != null && hasCron) {
+            throw new IllegalArgumentException("Set either 'syncIntervalSeconds' or 'syncCron', not both");
+        }
+        if (intervalSeconds != null) {
+            if (intervalSeconds <= 0) {
+                throw new IllegalArgumentException("'syncIntervalSeconds' must be positive");
+            }
+            Duration interval = Duration.ofSeconds(intervalSeconds);
+            return new SyncSchedule(interval, null, "every " + interval);
+        }
+        if (hasCron) {
+            // CronExpression.parse throws IllegalArgumentException for invalid expressions
+            return new SyncSchedule(null, CronExpression.parse(cron.trim()), "cron " + cron.trim());
+        }
+        return null;
+    }
+
+    /**
+     * Next regular run time after the given instant, before jitter. Interval
+     * schedules are aligned to multiples of the interval shifted by {@code offset},
+     * so systems with different offsets do not all fire at the same moment.
+     */
+    public Instant nextAfter(Instant after, Duration offset) {
+        if (interval != null) {
+            long intervalMs = interval.toMillis();
+            long shifted = after.toEpochMilli() - offset.toMillis();
+            long next = Math.floorDiv(shifted, intervalMs) * intervalMs + intervalMs + offset.toMillis();
+            return Instant.ofEpochMilli(next);
+        }
+        ZonedDateTime next = cron.next(after.atZone(ZoneId.systemDefault()));
+        return next == null ? null : next.toInstant();
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.integration.service;
+
+import com.example.integration.config.IntegrationProperties;
+import com.example.integration.dto.ScheduleStatus;
+import com.example.integration.dto.SyncJobStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Triggers syncs for configurations that have an interval or cron schedule.
+ * <p>
+ * Every system gets a fixed offset derived from its name, so systems with the same
+ * schedule are spread over the interval (or over the cron spread window) instead of
+ * all firing at once, plus a random jitter per run. A run is skipped while the
+ * previous sync of the same system is still going, and at most
+ * {@code max-concurrent-syncs} scheduled syncs run at a time; due systems beyond
+ * that wait, most overdue first, for the next tick.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class SyncScheduler {
+
+    private final ApiConfigurationCache configCache;
+    private final SyncJobService syncJobService;
+    private final IntegrationProperties properties;
+    private final Map<String, ScheduledSystem> systems = new ConcurrentHashMap<>();
+
+    @Scheduled(fixedDelayString = "${integration.scheduler.tick:PT5S}")
+    public void tick() {
+        IntegrationProperties.Scheduler settings = properties.getScheduler();
+        if (!settings.isEnabled()) {
+            return;
+        }
+
+        Instant now = Instant.now();
+        reconcile(now);
+
+        List<ScheduledSystem> due = systems.values().stream()
+                .filter(system -> system.nextRunAt != null && !system.nextRunAt.isAfter(now))
+                .sorted(Comparator.comparing(system -> system.nextRunAt))
+                .toList();
+        if (due.isEmpty()) {
+            return;
+        }
+
+        long running = systems.values().stream().filter(this::isRunning).count();
+        for (ScheduledSystem system : due) {
+            if (syncJobService.isSystemBusy(system.systemName)) {
+                system.skippedRuns++;
+                system.nextRunAt = nextRun(system, now);
+                log.info("Skipping scheduled sync of {}: previous sync still running", system.systemName);
+                continue;
+            }
+            if (running >= settings.getMaxConcurrentSyncs()) {
+                log.debug("{} scheduled syncs running, deferring {}", running, system.systemName);
+                continue;
+            }
+            try {
+                SyncJobStatus job = syncJobService.submit(system.systemName);
+                system.lastJobId = job.getJobId();
+                system.lastRunAt = now;
+                system.nextRunAt = nextRun(system, now);
+                running++;
+            } catch (RejectedExecutionException e) {
+                log.warn("Job queue full, deferring scheduled sync of {}", system.systemName);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Upcoming and last runs of all scheduled systems
+     */
+    public List<ScheduleStatus> getSchedules() {
+        return systems.values().stream()
+                .sorted(Comparator.comparing(system -> system.systemName))
+                .map(system -> ScheduleStatus.builder()
+                        .systemName(system.systemName)
+                        .schedule(system.schedule.description())
+                        .nextRunAt(system.nextRunAt)
+                        .lastRunAt(system.lastRunAt)
+                        .lastJobId(system.lastJobId)
+                        .lastJobState(system.lastJobId == null ? null : syncJobService.getJob(system.lastJobId)
+                                .map(SyncJobStatus::getState)
+                                .orElse(null))
+                        .skippedRuns(system.skippedRuns)
+                        .build())
+                .toList();
+    }
+
+    /**
+     * Pick up new, changed and removed schedules from the active configurations
+     */
+    private void reconcile(Instant now) {
+        Map<String, SyncSchedule> active = configCache.getAllActive().stream()
+                .filter(config -> config.getSchedule() != null)
+                .collect(Collectors.toMap(ResolvedConfiguration::getSystemName, ResolvedConfiguration::getSchedule));
+
+        Set<String> removed = systems.keySet().stream()
+                .filter(name -> !active.containsKey(name))
+                .collect(Collectors.toSet());
+        removed.forEach(systems::remove);
+
+        active.forEach((systemName, schedule) -> {
+            ScheduledSystem current = systems.get(systemName);
+            if (current == null || !current.schedule.equals(schedule)) {
+                ScheduledSystem system = new ScheduledSystem(systemName, schedule);
+                if (current != null) {
+                    system.lastRunAt = current.lastRunAt;
+                    system.lastJobId = current.lastJobId;
+                }
+                system.nextRunAt = nextRun(system, now);
+                systems.put(systemName, system);
+                log.info("Scheduled {} ({}), first run at {}", systemName, schedule.description(), system.nextRunAt);
+            }
+        });
+    }
+
+    private Instant nextRun(ScheduledSystem system, Instant now) {
+        IntegrationProperties.Scheduler settings = properties.getScheduler();
+        SyncSchedule schedule = system.schedule;
+
+        // Interval schedules are shifted within the interval, cron schedules delayed within the spread window
+        Duration window = schedule.interval() != null ? schedule.interval() : settings.getCronSpread();
+        Duration offset = spread(system.systemName, window);
+        Instant next = schedule.nextAfter(now, schedule.interval() != null ? offset : Duration.ZERO);
+        if (next == null) {
+            return null;
+        }
+        if (schedule.interval() == null) {
+            next = next.plus(offset);
+        }
+
+        // Never jitter by more than a tenth of the interval
+        Duration maxJitter = settings.getMaxJitter();
+        if (schedule.interval() != null && schedule.interval().dividedBy(10).compareTo(maxJitter) < 0) {
+            maxJitter = schedule.interval().dividedBy(10);
+        }
+        long jitterMs = maxJitter.toMillis() > 0 ? ThreadLocalRandom.current().nextLong(maxJitter.toMillis()) : 0;
+        return next.plusMillis(jitterMs);
+    }
+
+    /**
+     * Stable per-system offset within the window, so restarts keep the spread
+     */
+    private static Duration spread(String systemName, Duration window) {
+        long windowMs = window.toMillis();
+        if (windowMs <= 0) {
+            return Duration.ZERO;
+        }
+        return Duration.ofMillis(Math.floorMod(ContentHash.of(systemName), windowMs));
+    }
+
+    private boolean isRunning(ScheduledSystem system) {
+        return system.lastJobId != null && syncJobService.getJob(system.lastJobId)
+                .map(job -> job.getFinishedAt() == null)
+                .orElse(false);
+    }
+
+    private static final class ScheduledSystem {
+
+        private final String systemName;
+        private final SyncSchedule schedule;
+        private volatile Instant nextRunAt;
+        private volatile Instant lastRunAt;
+        private volatile String lastJobId;
+        private volatile int skippedRuns;
+
+        private ScheduledSystem(String systemName, SyncSchedule schedule) {
+            this.systemName = systemName;
+            this.schedule = schedule;
+        }
+    }
+}
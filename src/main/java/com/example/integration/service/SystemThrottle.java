@@ -0,0 +1,231 @@
+package com.example.integration.service;
+
+import com.example.integration.model.RateLimitSettings;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request gate of one external system: a token bucket whose rate adapts to the
+ * vendor's rate limit responses, a retry policy and a circuit breaker.
+ * <p>
+ * The bucket is a GCRA scheduler: every request reserves the next free slot and
+ * waits for it, so concurrent page fetches of a system share one rate. On 429 the
+ * rate is halved and then grows back by 5% of the configured rate per success;
+ * Retry-After and exhausted X-RateLimit-Remaining headers pause the system until
+ * the vendor's reset time.
+ */
+@Slf4j
+class SystemThrottle {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final String systemName;
+    private final RateLimitSettings settings;
+    private final Retry retry;
+
+    // Guarded by this
+    private double rate;
+    private long theoreticalArrival;
+    private long pausedUntil;
+    private int consecutiveFailures;
+    private long circuitOpenUntil;
+    private boolean trialInFlight;
+
+    SystemThrottle(String systemName, RateLimitSettings settings) {
+        this.systemName = systemName;
+        this.settings = settings;
+        this.rate = settings.getRequestsPerSecond() != null ? settings.getRequestsPerSecond() : 0;
+        this.theoreticalArrival = System.nanoTime();
+        this.retry = Retry.backoff(settings.getMaxRetries(), Duration.ofMillis(settings.getInitialBackoffMillis()))
+                .maxBackoff(Duration.ofSeconds(settings.getMaxBackoffSeconds()))
+                .jitter(0.5)
+                .filter(SystemThrottle::isRetryable)
+                .doBeforeRetry(signal -> log.warn("Retrying request to {} (attempt {}): {}",
+                        systemName, signal.totalRetries() + 1, signal.failure().getMessage()))
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    RateLimitSettings getSettings() {
+        return settings;
+    }
+
+    Retry retrySpec() {
+        return retry;
+    }
+
+    /**
+     * Completes when the next request may be sent, or fails fast with
+     * {@link CircuitOpenException} while the circuit is open. Emits true when the
+     * request is the one trial let through a half-open circuit; a trial that ends
+     * without {@link #onResponse} or {@link #onError}, e.g. because it was cancelled,
+     * must be handed back with {@link #releaseTrial()}.
+     */
+    Mono<Boolean> acquire() {
+        return Mono.defer(() -> {
+            Reservation reservation = reserve();
+            if (reservation.waitNanos() <= 0) {
+                return Mono.just(reservation.trial());
+            }
+            Mono<Boolean> slot = Mono.delay(Duration.ofNanos(reservation.waitNanos())).thenReturn(reservation.trial());
+            // Cancelled while waiting for its slot
+            return reservation.trial() ? slot.doOnCancel(this::releaseTrial) : slot;
+        });
+    }
+
+    /**
+     * Hand back a half-open trial that was abandoned before its outcome was known,
+     * so the next request becomes the trial instead of the circuit staying open
+     */
+    synchronized void releaseTrial() {
+        if (trialInFlight) {
+            trialInFlight = false;
+            log.debug("Trial request to {} was cancelled, the next request tries again", systemName);
+        }
+    }
+
+    private synchronized Reservation reserve() {
+        long now = System.nanoTime();
+
+        boolean trial = false;
+        if (circuitOpenUntil != 0) {
+            if (now < circuitOpenUntil || trialInFlight) {
+                long remaining = Math.max(circuitOpenUntil - now, 0);
+                throw new CircuitOpenException(systemName, TimeUnit.NANOSECONDS.toSeconds(remaining) + 1);
+            }
+            // Half-open: let one trial request through
+            trialInFlight = true;
+            trial = true;
+        }
+
+        long earliest = Math.max(now, pausedUntil);
+        if (rate <= 0) {
+            return new Reservation(earliest - now, trial);
+        }
+        long interval = (long) (NANOS_PER_SECOND / rate);
+        long tolerance = interval * (Math.max(settings.getBurst(), 1) - 1);
+        long arrival = Math.max(theoreticalArrival, now);
+        long allowedAt = Math.max(arrival - tolerance, earliest);
+        theoreticalArrival = Math.max(arrival, allowedAt) + interval;
+        return new Reservation(allowedAt - now, trial);
+    }
+
+    /**
+     * Record a response that came back with a success status
+     */
+    synchronized void onResponse(HttpHeaders headers) {
+        consecutiveFailures = 0;
+        circuitOpenUntil = 0;
+        trialInFlight = false;
+        if (settings.isAdaptive()) {
+            Double configured = settings.getRequestsPerSecond();
+            if (configured != null && rate < configured) {
+                rate = Math.min(configured, rate + configured * 0.05);
+            }
+            pauseFromHeaders(headers);
+        }
+    }
+
+    /**
+     * Record a failed request attempt; only retryable failures count towards the circuit
+     */
+    synchronized void onError(Throwable error) {
+        if (error instanceof CircuitOpenException) {
+            return;
+        }
+        if (error instanceof WebClientResponseException response
+                && response.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value()
+                && settings.isAdaptive()) {
+            if (rate > 0) {
+                rate = rate / 2;
+                log.info("Rate limited by {}, slowing down to {} requests/s", systemName, String.format("%.2f", rate));
+            }
+            pauseFromHeaders(response.getHeaders());
+        }
+        trialInFlight = false;
+        if (!isRetryable(error)) {
+            // The system answered (e.g. 401 or 404) - that is not an outage
+            consecutiveFailures = 0;
+            circuitOpenUntil = 0;
+            return;
+        }
+
+        if (++consecutiveFailures >= settings.getCircuitFailureThreshold()) {
+            circuitOpenUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(settings.getCircuitOpenSeconds());
+            log.warn("Opening circuit for {} for {}s after {} consecutive failures",
+                    systemName, settings.getCircuitOpenSeconds(), consecutiveFailures);
+        }
+    }
+
+    /**
+     * Pause until the vendor's reset time when it says we are out of requests
+     */
+    private void pauseFromHeaders(HttpHeaders headers) {
+        long pauseSeconds = -1;
+        String retryAfter = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (retryAfter != null) {
+            pauseSeconds = parseRetryAfter(retryAfter);
+        } else if ("0".equals(headers.getFirst("X-RateLimit-Remaining"))) {
+            pauseSeconds = parseReset(headers.getFirst("X-RateLimit-Reset"));
+        }
+        if (pauseSeconds <= 0) {
+            return;
+        }
+
+        long pause = Math.min(pauseSeconds, settings.getMaxPauseSeconds());
+        pausedUntil = Math.max(pausedUntil, System.nanoTime() + TimeUnit.SECONDS.toNanos(pause));
+        log.info("Pausing requests to {} for {}s as requested by its rate limit headers", systemName, pause);
+    }
+
+    /**
+     * Retry-After is either delta seconds or an HTTP date
+     */
+    private static long parseRetryAfter(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Duration.between(ZonedDateTime.now(), at).toSeconds();
+            } catch (DateTimeParseException ignored) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * X-RateLimit-Reset is either epoch seconds (GitHub) or seconds until reset
+     */
+    private static long parseReset(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            long reset = (long) Double.parseDouble(value.trim());
+            return reset > 1_000_000_000L ? reset - System.currentTimeMillis() / 1000 : reset;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static boolean isRetryable(Throwable error) {
+        if (error instanceof WebClientResponseException response) {
+            int status = response.getStatusCode().value();
+            return status == HttpStatus.TOO_MANY_REQUESTS.value() || status >= 500;
+        }
+        return error instanceof WebClientRequestException;
+    }
+
+    private record Reservation(long waitNanos, boolean trial) {
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.integration.service;
+
+import com.example.integration.model.RateLimitSettings;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One {@link SystemThrottle} per external system, kept across syncs so that learned
+ * rate limits and circuit state carry over to the next run. A throttle is replaced
+ * when the system's rate limit settings change.
+ */
+@Component
+public class SystemThrottles {
+
+    private final Map<String, SystemThrottle> throttles = new ConcurrentHashMap<>();
+
+    SystemThrottle forSystem(ResolvedConfiguration config) {
+        RateLimitSettings settings = config.getRateLimit();
+        return throttles.compute(config.getSystemName(), (systemName, current) ->
+                current != null && current.getSettings().equals(settings)
+                        ? current
+                        : new SystemThrottle(systemName, settings));
+    }
+}
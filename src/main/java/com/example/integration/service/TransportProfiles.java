@@ -0,0 +1,119 @@
+package com.example.integration.service;
+
+import com.example.integration.model.TransportSettings;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One {@link WebClient} per system, built on first use and reused by every sync of
+ * the system while its transport settings stay the same, so pooled connections (and
+ * their TLS sessions) survive from one request and one sync to the next.
+ * <p>
+ * Once a system's settings change, its next request builds a new profile and the
+ * old connection pool is disposed: idle connections are closed at once, the ones
+ * still serving a request once it is done. Pools of systems that are no longer
+ * active are disposed when the configuration cache is evicted.
+ */
+@Component
+@Slf4j
+public class TransportProfiles {
+
+    private final WebClient.Builder webClientBuilder;
+    private final Map<String, Profile> profiles = new ConcurrentHashMap<>();
+    private final AtomicInteger poolCount = new AtomicInteger();
+
+    public TransportProfiles(WebClient.Builder webClientBuilder) {
+        this.webClientBuilder = webClientBuilder;
+    }
+
+    /**
+     * Client for a system with the given settings, replacing the system's profile if
+     * it was built with other settings
+     */
+    public WebClient clientFor(String systemName, TransportSettings settings) {
+        Profile profile = profiles.get(systemName);
+        if (profile != null && profile.settings().equals(settings)) {
+            return profile.webClient();
+        }
+        Profile[] replaced = new Profile[1];
+        profile = profiles.compute(systemName, (name, current) -> {
+            if (current != null && current.settings().equals(settings)) {
+                return current;
+            }
+            replaced[0] = current;
+            return build(name, settings);
+        });
+        if (replaced[0] != null) {
+            dispose(systemName, replaced[0]);
+        }
+        return profile.webClient();
+    }
+
+    /**
+     * Dispose the profiles of every system not in the given set
+     */
+    public void retainSystems(Set<String> systemNames) {
+        for (String systemName : List.copyOf(profiles.keySet())) {
+            if (!systemNames.contains(systemName)) {
+                Profile removed = profiles.remove(systemName);
+                if (removed != null) {
+                    dispose(systemName, removed);
+                }
+            }
+        }
+    }
+
+    private Profile build(String systemName, TransportSettings settings) {
+        String poolName = "integration-" + systemName + "-" + poolCount.incrementAndGet();
+        log.info("Creating HTTP transport profile {}: {}", poolName, settings);
+
+        ConnectionProvider provider = ConnectionProvider.builder(poolName)
+                .maxConnections(settings.getMaxConnections())
+                .maxIdleTime(Duration.ofSeconds(settings.getMaxIdleTimeSeconds()))
+                .maxLifeTime(Duration.ofSeconds(settings.getMaxLifeTimeSeconds()))
+                .evictInBackground(Duration.ofSeconds(settings.getEvictIntervalSeconds()))
+                .pendingAcquireTimeout(Duration.ofSeconds(settings.getPendingAcquireTimeoutSeconds()))
+                .build();
+
+        HttpClient httpClient = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, settings.getConnectTimeoutSeconds() * 1000)
+                .responseTimeout(Duration.ofSeconds(settings.getReadTimeoutSeconds()))
+                .compress(settings.isCompression());
+        if (settings.isHttp2()) {
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
+
+        WebClient webClient = webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+        return new Profile(settings, webClient, provider);
+    }
+
+    private void dispose(String systemName, Profile profile) {
+        log.info("Disposing HTTP transport profile {} of system {}", profile.provider().name(), systemName);
+        profile.provider().disposeLater().subscribe(null,
+                e -> log.warn("Failed to dispose HTTP transport profile of system {}", systemName, e));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        profiles.values().forEach(profile -> profile.provider().disposeLater().block(Duration.ofSeconds(5)));
+    }
+
+    private record Profile(TransportSettings settings, WebClient webClient, ConnectionProvider provider) {
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.integration.service;
+
+import com.example.integration.model.UserField;
+import com.example.integration.repository.StagingStore;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Streams staged users straight from the staging store into an output stream.
+ * <p>
+ * Rows are read from a cursor (or in keyset batches for the memory store) and
+ * written one at a time through a fixed-size buffer, so memory stays flat however
+ * many users are exported. Writes block while the client is not reading, which
+ * also stops reading from the store.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class UserExportService {
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final StagingStore stagingStore;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Write the selected users in the given format
+     *
+     * @param systemName  Only users of this system, or null for all systems
+     * @param fetchedFrom Only users fetched at or after this time, or null
+     * @param fetchedTo   Only users fetched before this time, or null
+     * @return Number of exported users
+     */
+    @Transactional(readOnly = true)
+    public long export(
+            String systemName,
+            LocalDateTime fetchedFrom,
+            LocalDateTime fetchedTo,
+            Set<UserField> fields,
+            ExportFormat format,
+            OutputStream out) throws IOException {
+        try (Stream<Map<String, Object>> users = stagingStore.streamAll(systemName, fetchedFrom, fetchedTo, fields)) {
+            long exported = switch (format) {
+                case NDJSON -> writeNdjson(users.iterator(), out);
+                case CSV -> writeCsv(users.iterator(), List.copyOf(fields), out);
+            };
+            log.debug("Exported {} users as {}", exported, format);
+            return exported;
+        }
+    }
+
+    private long writeNdjson(Iterator<Map<String, Object>> users, OutputStream out) throws IOException {
+        // Let the generator buffer rows instead of flushing the response after each one
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long count = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.setRootValueSeparator(null);
+            while (users.hasNext()) {
+                writer.writeValue(generator, users.next());
+                generator.writeRaw('\n');
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private long writeCsv(Iterator<Map<String, Object>> users, List<UserField> columns, OutputStream out)
+            throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        StringBuilder row = new StringBuilder(256);
+
+        for (int i = 0; i < columns.size(); i++) {
+            row.append(i == 0 ? "" : ",").append(columns.get(i).attribute());
+        }
+        writer.append(row).append("\r\n");
+
+        long count = 0;
+        while (users.hasNext()) {
+            Map<String, Object> user = users.next();
+            row.setLength(0);
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    row.append(',');
+                }
+                appendCsvValue(row, user.get(columns.get(i).attribute()));
+            }
+            writer.append(row).append("\r\n");
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * RFC 4180 field: quoted when it contains a delimiter, quote or line break.
+     * additionalData is written as its JSON text.
+     */
+    private void appendCsvValue(StringBuilder row, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value instanceof String string ? string
+                : value instanceof Number || value instanceof LocalDateTime ? value.toString()
+                : objectMapper.writeValueAsString(value);
+
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            row.append(text);
+            return;
+        }
+        row.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                row.append('"');
+            }
+            row.append(c);
+        }
+        row.append('"');
+    }
+}
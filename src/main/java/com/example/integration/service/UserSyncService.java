@@ -1,200 +1,892 @@
 package com.example.integration.service;
 
+import com.example.integration.config.IntegrationProperties;
+import com.example.integration.dto.UserPage;
 import com.example.integration.dto.UserSyncResponse;
+import com.example.integration.model.AdditionalDataCodec;
 import com.example.integration.model.ApiConfiguration;
+import com.example.integration.model.SyncState;
 import com.example.integration.model.User;
-import com.example.integration.repository.ApiConfigurationRepository;
-import com.example.integration.repository.UserRepository;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.example.integration.model.UserField;
+import com.example.integration.repository.StagingStore;
+import com.example.integration.repository.SyncStateRepository;
+import com.example.integration.repository.UpsertResult;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Sinks;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class UserSyncService {
 
+    /**
+     * Largest page the keyset read endpoints return
+     */
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * Bytes of a decompressed spooled page fed to the parser at a time
+     */
+    private static final int REPLAY_BUFFER_SIZE = 64 * 1024;
+
     private final GenericApiClient apiClient;
-    private final ApiConfigurationRepository configRepository;
-    private final UserRepository userRepository;
+    private final ApiConfigurationCache configCache;
+    private final StagingStore stagingStore;
+    private final SyncStateRepository syncStateRepository;
+    private final IntegrationProperties properties;
+    private final SyncMetrics syncMetrics;
+    private final ResponseSpool responseSpool;
     private final ObjectMapper objectMapper;
+    private final PersistScheduler persistScheduler;
+
+    // Sync currently running per system, which new requests join
+    private final Map<String, SingleFlight> inFlight = new ConcurrentHashMap<>();
 
     /**
      * Sync users from a specific external system
+     * <p>
+     * Each chunk of users commits in its own transaction, so a long sync does not
+     * hold one database transaction open for the whole download. Only new or changed
+     * users are written; after a complete full sync, users that disappeared upstream
+     * are deleted. Systems with a watermark param only fetch changes since the last
+     * successful sync.
      */
-    @Transactional
     public UserSyncResponse syncUsersFromSystem(String systemName) {
-        List<String> errors = new ArrayList<>();
-        
-        try {
-            // Get API configuration for the system
-            ApiConfiguration config = configRepository.findBySystemNameAndActiveTrue(systemName)
-                    .orElseThrow(() -> new RuntimeException("No active configuration found for system: " + systemName));
-
-            log.info("Starting user sync for system: {}", systemName);
-
-            // Call external API
-            List<Map<String, Object>> rawUsers = apiClient.callExternalApi(config);
-            log.info("Fetched {} users from {}", rawUsers.size(), systemName);
-
-            // Parse field mappings
-            Map<String, String> fieldMappings = parseFieldMappings(config.getFieldMappings());
-
-            // Map and store users
-            int storedCount = 0;
-            for (Map<String, Object> rawUser : rawUsers) {
-                try {
-                    User user = mapToUser(rawUser, fieldMappings, systemName);
-                    
-                    // Check if user already exists
-                    if (user.getExternalId() != null) {
-                        userRepository.findBySystemNameAndExternalId(systemName, user.getExternalId())
-                                .ifPresent(existing -> user.setId(existing.getId()));
+        return syncUsersFromSystem(systemName, new SyncProgress(systemName));
+    }
+
+    /**
+     * Sync users from a specific external system, reporting into the given progress.
+     * Cancelling the progress stops the download and returns once the chunk being
+     * written has been committed; chunks already written are kept, unless the run
+     * writes a snapshot. A request that joined another caller's sync only stops
+     * waiting for it.
+     * <p>
+     * Blocks the calling thread until the sync is done; see
+     * {@link #syncUsersFromSystemReactive(String, SyncProgress)}.
+     */
+    public UserSyncResponse syncUsersFromSystem(String systemName, SyncProgress progress) {
+        return syncUsersFromSystemReactive(systemName, progress).block();
+    }
+
+    /**
+     * Non-blocking variant of {@link #syncUsersFromSystem(String)}
+     */
+    public Mono<UserSyncResponse> syncUsersFromSystemReactive(String systemName) {
+        return syncUsersFromSystemReactive(systemName, new SyncProgress(systemName));
+    }
+
+    /**
+     * Sync users without holding a thread for the duration of the sync.
+     * <p>
+     * Records are fetched, parsed and mapped as they arrive on the HTTP client's event
+     * loop. Chunks of users are upserted on the {@link PersistScheduler}, one chunk at
+     * a time per sync, while the next chunk is being mapped. Nothing is fetched or
+     * written until the returned Mono is subscribed.
+     * <p>
+     * Only one sync per system runs at a time. A request for a system that is already
+     * syncing joins that run and receives its response. With
+     * {@code integration.sync.coalesce-follow-up}, it waits for the run to end and
+     * then shares a single follow-up run with every request that arrived meanwhile,
+     * so it sees data fetched after it asked. A sync is stopped when its starter
+     * cancels it or when no request waits for it any more (e.g. all timed out).
+     */
+    public Mono<UserSyncResponse> syncUsersFromSystemReactive(String systemName, SyncProgress progress) {
+        return Mono.defer(() -> {
+            boolean followUp = properties.getSync().isCoalesceFollowUp();
+            SingleFlight[] joined = new SingleFlight[1];
+            inFlight.compute(systemName, (name, running) -> {
+                if (running == null) {
+                    joined[0] = startFlight(systemName, progress, false);
+                    return joined[0];
+                }
+                // A remap is not a sync to join; requests wait for it and sync after it
+                if (!followUp && !running.remap) {
+                    joined[0] = running;
+                } else {
+                    if (running.followUp == null) {
+                        running.followUp = startFlight(systemName, progress, true);
                     }
-                    
-                    userRepository.save(user);
-                    storedCount++;
-                } catch (Exception e) {
-                    log.error("Error mapping user: {}", rawUser, e);
-                    errors.add("Failed to map user: " + e.getMessage());
+                    joined[0] = running.followUp;
+                }
+                return running;
+            });
+
+            SingleFlight flight = joined[0];
+            if (flight.progress == progress) {
+                return flight.response();
+            }
+            log.info("Sync for system {} joined {}", systemName, flight.start != null ? "the follow-up run" : "the running sync");
+            progress.join(flight.progress);
+            return flight.response()
+                    .takeUntilOther(progress.cancellation())
+                    .switchIfEmpty(Mono.fromSupplier(() -> {
+                        progress.join(null);
+                        progress.finish(SyncProgress.Phase.CANCELLED);
+                        return UserSyncResponse.builder()
+                                .systemName(systemName)
+                                .success(false)
+                                .durationMs(0)
+                                .message("Stopped waiting for the running sync")
+                                .build();
+                    }));
+        });
+    }
+
+    /**
+     * Register a sync of a system. A follow-up run waits until the run before it
+     * hands over the system's slot as it ends.
+     */
+    private SingleFlight startFlight(String systemName, SyncProgress progress, boolean followUp) {
+        SingleFlight flight = new SingleFlight(progress, followUp ? Sinks.empty() : null, false);
+        Mono<Void> start = flight.start == null
+                ? Mono.empty()
+                : flight.start.asMono().doOnCancel(() -> progress.finish(SyncProgress.Phase.CANCELLED));
+        // A run cancelled once started drops its snapshot and fails its progress, see abandoned()
+        flight.run = start.then(runSync(systemName, progress))
+                .doFinally(signal -> land(systemName, flight));
+        return flight;
+    }
+
+    /**
+     * Hand a system's slot over to the follow-up run of a flight that ended, if any.
+     * A follow-up that was cancelled before its turn is dropped, so the next request
+     * starts a new one.
+     */
+    private void land(String systemName, SingleFlight flight) {
+        SingleFlight[] next = new SingleFlight[1];
+        inFlight.computeIfPresent(systemName, (name, current) -> {
+            if (current != flight) {
+                if (current.followUp == flight) {
+                    current.followUp = null;
                 }
+                return current;
             }
+            next[0] = flight.followUp;
+            return next[0];
+        });
+        if (next[0] != null) {
+            next[0].start.tryEmitEmpty();
+        }
+    }
 
-            log.info("Stored {} users for system: {}", storedCount, systemName);
+    /**
+     * One sync of a system that any number of requests wait for, or a remap that
+     * holds the system's slot
+     */
+    private static final class SingleFlight {
 
-            return UserSyncResponse.builder()
-                    .systemName(systemName)
-                    .usersFetched(rawUsers.size())
-                    .usersStored(storedCount)
-                    .success(true)
-                    .message("Successfully synced users from " + systemName)
-                    .errors(errors.isEmpty() ? null : errors)
-                    .build();
+        private final SyncProgress progress;
+        private final Sinks.Empty<Void> start; // Null unless this is a follow-up run
+        private final boolean remap;
+        private final Sinks.One<UserSyncResponse> result = Sinks.one();
 
-        } catch (Exception e) {
-            log.error("Failed to sync users from system: {}", systemName, e);
-            errors.add(e.getMessage());
-            
+        // Guarded by the inFlight map entry of the system
+        private SingleFlight followUp;
+
+        // Guarded by this; run is set before the flight is published, and is null for a
+        // remap and once the run was started
+        private Mono<UserSyncResponse> run;
+        private Disposable running;
+        private boolean stopped;
+
+        private SingleFlight(SyncProgress progress, Sinks.Empty<Void> start, boolean remap) {
+            this.progress = progress;
+            this.start = start;
+            this.remap = remap;
+        }
+
+        /**
+         * The response for one waiting request. The first subscription starts the run
+         * and every later one shares its result, also after the run ended; the run is
+         * cancelled once the last waiting request stops waiting.
+         */
+        private Mono<UserSyncResponse> response() {
+            // doFinally runs once the cancelled request left the sink, so the count is current
+            return result.asMono()
+                    .doOnSubscribe(subscription -> launch())
+                    .doFinally(signal -> {
+                        if (signal == SignalType.CANCEL) {
+                            leave();
+                        }
+                    });
+        }
+
+        private void launch() {
+            Mono<UserSyncResponse> toRun;
+            synchronized (this) {
+                toRun = run;
+                run = null;
+            }
+            if (toRun == null) {
+                return;
+            }
+            Disposable disposable = toRun.subscribe(result::tryEmitValue, result::tryEmitError, result::tryEmitEmpty);
+            boolean stop;
+            synchronized (this) {
+                running = disposable;
+                stop = stopped;
+            }
+            if (stop) {
+                disposable.dispose();
+            }
+        }
+
+        private void leave() {
+            if (result.currentSubscriberCount() > 0) {
+                return;
+            }
+            Disposable disposable;
+            synchronized (this) {
+                stopped = true;
+                disposable = running;
+            }
+            if (disposable != null) {
+                disposable.dispose();
+            }
+            // A request that joins the stopped run gets no response instead of waiting forever
+            result.tryEmitEmpty();
+        }
+    }
+
+    private Mono<UserSyncResponse> runSync(String systemName, SyncProgress progress) {
+        return Mono.defer(() -> {
+            SyncMetrics.SystemMeters meters = syncMetrics.forSystem(systemName);
+            long startedAt = System.nanoTime();
+            meters.syncStarted();
+            progress.start();
+            SyncRun run = new SyncRun(systemName, progress, meters, startedAt);
+
+            // The configuration and watermark may come from the database
+            return persistScheduler.call(() -> prepare(run))
+                    .flatMap(prepared -> syncRecords(run))
+                    .onErrorResume(e -> persistScheduler.call(() -> failed(run, e)))
+                    .doOnNext(response -> {
+                        run.responded = true;
+                        run.success = response.isSuccess();
+                    })
+                    .doOnCancel(() -> abandoned(run))
+                    .doFinally(signal -> {
+                        // Discards the run unless it was completed
+                        SpoolWriter spool;
+                        synchronized (run) {
+                            spool = run.spool;
+                        }
+                        if (spool != null) {
+                            spool.close();
+                        }
+                        meters.syncFinished(run.success, System.nanoTime() - startedAt);
+                    });
+        });
+    }
+
+    /**
+     * Resolve the configuration, watermark and spool of a run
+     */
+    private SyncRun prepare(SyncRun run) {
+        // Get API configuration for the system (parsed and cached)
+        run.config = configCache.getActive(run.systemName)
+                .orElseThrow(() -> new RuntimeException("No active configuration found for system: " + run.systemName));
+
+        log.info("Starting user sync for system: {}", run.systemName);
+
+        // Incremental run when the source supports a watermark and we have one
+        run.runStartedAt = Instant.now();
+        run.runParams = watermarkParams(run.config);
+        run.incremental = !run.runParams.isEmpty();
+
+        // Raw pages are kept on disk when spooling is enabled, for remapping later
+        SpoolWriter spool = responseSpool.openRun(run.systemName, run.incremental);
+
+        // A full run in snapshot mode stays invisible to readers until it is published
+        long generation = properties.getStaging().isSnapshots() && !run.incremental
+                ? stagingStore.beginSnapshot(run.systemName)
+                : StagingStore.LIVE;
+
+        boolean abandoned;
+        synchronized (run) {
+            run.spool = spool;
+            run.generation = generation;
+            abandoned = run.abandoned;
+        }
+        if (abandoned) {
+            // Cancelled while the run was being prepared, after its cleanup ran
+            if (spool != null) {
+                spool.close();
+            }
+            discardSnapshot(run);
+        }
+        return run;
+    }
+
+    /**
+     * Stream users from the external API, mapping each as it is parsed and storing
+     * them in chunks with one bulk upsert per chunk
+     */
+    private Mono<UserSyncResponse> syncRecords(SyncRun run) {
+        int batchSize = properties.getSync().getBatchSize();
+        return apiClient.streamExternalApi(run.config, run.runParams, run.progress, run.spool)
+                .takeUntilOther(run.progress.cancellation())
+                .<User>handle((rawUser, sink) -> {
+                    User user = run.map(rawUser);
+                    if (user != null) {
+                        sink.next(user);
+                    }
+                })
+                .buffer(batchSize)
+                .concatMap(chunk -> persistScheduler.call(
+                        () -> storeChunk(run.systemName, run.generation, chunk, run.errors, run.progress, run.meters)), 1)
+                .reduce(UpsertResult.EMPTY, UpsertResult::plus)
+                .flatMap(totals -> {
+                    run.meters.phases(run.fetchNanos, run.mapNanos);
+                    return persistScheduler.call(() -> finish(run, totals));
+                });
+    }
+
+    /**
+     * Complete the spool, deletions and watermark of a run whose records are all stored
+     */
+    private UserSyncResponse finish(SyncRun run, UpsertResult totals) {
+        String systemName = run.systemName;
+        List<String> errors = run.errors;
+
+        if (run.progress.isCancelled()) {
+            log.info("Sync for system {} cancelled after {} users", systemName, run.fetchedCount);
+            discardSnapshot(run);
+            run.progress.finish(SyncProgress.Phase.CANCELLED);
             return UserSyncResponse.builder()
                     .systemName(systemName)
-                    .usersFetched(0)
-                    .usersStored(0)
+                    .usersFetched(run.fetchedCount)
+                    .usersStored(totals.stored())
+                    .usersInserted(totals.inserted())
+                    .usersUpdated(totals.updated())
+                    .usersUnchanged(totals.unchanged())
                     .success(false)
-                    .message("Failed to sync users: " + e.getMessage())
-                    .errors(errors)
+                    .durationMs(elapsedMillis(run.startedAt))
+                    .message("Sync cancelled")
+                    .errors(errors.isEmpty() ? null : List.copyOf(errors))
                     .build();
         }
+        run.progress.finalizing();
+
+        // Every page arrived, so the spooled run can be replayed even if some users failed
+        if (run.spool != null) {
+            responseSpool.complete(systemName, run.spool);
+        }
+
+        // Deletions can only be detected when this run saw every upstream user
+        int deletedCount = 0;
+        if (!run.incremental && errors.isEmpty() && !run.seenExternalIds.isEmpty()
+                && run.config.getPagination().getMaxPages() == null) {
+            deletedCount = stagingStore.deleteMissing(systemName, run.generation, run.seenExternalIds);
+        }
+
+        // Readers switch to the new snapshot at once, unless the run was cancelled
+        // and its snapshot dropped meanwhile
+        if (run.generation != StagingStore.LIVE) {
+            if (!claimSnapshot(run)) {
+                return failedResponse(systemName, "Sync cancelled before it finished", elapsedMillis(run.startedAt));
+            }
+            stagingStore.publishSnapshot(systemName, run.generation);
+        }
+
+        if (run.config.getWatermarkParam() != null && errors.isEmpty()) {
+            syncStateRepository.save(new SyncState(systemName, run.runStartedAt));
+        }
+
+        log.info("Fetched {} users from {}", run.fetchedCount, systemName);
+        log.info("Stored {} users for system: {} ({} inserted, {} updated, {} unchanged, {} deleted)",
+                totals.stored(), systemName, totals.inserted(), totals.updated(), totals.unchanged(), deletedCount);
+        run.progress.finish(SyncProgress.Phase.COMPLETED);
+
+        return UserSyncResponse.builder()
+                .systemName(systemName)
+                .usersFetched(run.fetchedCount)
+                .usersStored(totals.stored())
+                .usersInserted(totals.inserted())
+                .usersUpdated(totals.updated())
+                .usersUnchanged(totals.unchanged())
+                .usersDeleted(deletedCount)
+                .success(true)
+                .durationMs(elapsedMillis(run.startedAt))
+                .message("Successfully synced users from " + systemName)
+                .errors(errors.isEmpty() ? null : List.copyOf(errors))
+                .build();
+    }
+
+    private UserSyncResponse failed(SyncRun run, Throwable e) {
+        log.error("Failed to sync users from system: {}", run.systemName, e);
+        run.errors.add(e.getMessage());
+        discardSnapshot(run);
+        run.progress.finish(SyncProgress.Phase.FAILED);
+
+        return UserSyncResponse.builder()
+                .systemName(run.systemName)
+                .usersFetched(0)
+                .usersStored(0)
+                .success(false)
+                .durationMs(elapsedMillis(run.startedAt))
+                .message("Failed to sync users: " + e.getMessage())
+                .errors(List.copyOf(run.errors))
+                .build();
     }
 
     /**
-     * Sync users from all active systems
+     * Clean up a run that was cancelled before it produced a response, e.g. by a
+     * timeout: its snapshot is dropped and its progress fails, as in
+     * {@link #failed}. The spool is discarded as the run terminates.
      */
-    public List<UserSyncResponse> syncUsersFromAllSystems() {
-        List<ApiConfiguration> activeConfigs = configRepository.findByActiveTrue();
-        List<UserSyncResponse> responses = new ArrayList<>();
+    private void abandoned(SyncRun run) {
+        if (run.responded) {
+            return;
+        }
+        log.warn("Sync for system {} was cancelled after {} users", run.systemName, run.fetchedCount);
+        synchronized (run) {
+            run.abandoned = true;
+        }
+        run.errors.add("Sync cancelled before it finished");
+        run.progress.finish(SyncProgress.Phase.FAILED);
+        persistScheduler.call(() -> {
+                    discardSnapshot(run);
+                    return run;
+                })
+                .subscribe(done -> { }, e -> log.warn("Failed to clean up cancelled sync of system: {}", run.systemName, e));
+    }
 
-        for (ApiConfiguration config : activeConfigs) {
-            responses.add(syncUsersFromSystem(config.getSystemName()));
+    /**
+     * Claim a run's snapshot for publishing or dropping it
+     *
+     * @return false if it was already claimed, e.g. dropped by a cancellation
+     */
+    private static boolean claimSnapshot(SyncRun run) {
+        synchronized (run) {
+            if (run.snapshotClaimed) {
+                return false;
+            }
+            run.snapshotClaimed = true;
+            return true;
         }
+    }
 
-        return responses;
+    /**
+     * Drop what a snapshot run wrote; readers never saw it. Does nothing once the
+     * snapshot was published or dropped.
+     */
+    private void discardSnapshot(SyncRun run) {
+        long generation;
+        synchronized (run) {
+            generation = run.generation;
+        }
+        if (generation == StagingStore.LIVE || !claimSnapshot(run)) {
+            return;
+        }
+        try {
+            stagingStore.discardSnapshot(run.systemName, generation);
+        } catch (Exception e) {
+            // The next snapshot of the system drops it instead
+            log.warn("Failed to discard snapshot {} of system: {}", generation, run.systemName, e);
+        }
     }
 
     /**
-     * Map raw API data to User entity using field mappings
+     * State of one sync run. Records are mapped one after the other, while chunks are
+     * stored on the persist pool, so only the error list is shared between threads,
+     * apart from what a cancellation has to clean up.
      */
-    private User mapToUser(Map<String, Object> rawData, Map<String, String> fieldMappings, String systemName) {
-        User.UserBuilder userBuilder = User.builder()
-                .systemName(systemName);
+    private static final class SyncRun {
+
+        private final String systemName;
+        private final SyncProgress progress;
+        private final SyncMetrics.SystemMeters meters;
+        private final long startedAt;
+        private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        private final Set<String> seenExternalIds = new HashSet<>();
+
+        private ResolvedConfiguration config;
+        private Instant runStartedAt;
+        private Map<String, String> runParams;
+        private boolean incremental;
+        // Spool and generation are set under this lock, so a cancellation sees them
+        private SpoolWriter spool;
+        private long generation = StagingStore.LIVE;
+        private boolean abandoned; // Guarded by this
+        private boolean snapshotClaimed; // Guarded by this
+        private volatile boolean responded;
+        private volatile boolean success;
+
+        private int fetchedCount;
+
+        // Time spent waiting for the next parsed record vs. mapping it; persisting
+        // is measured per batch by storeChunk
+        private long fetchNanos;
+        private long mapNanos;
+        private long waitStart;
 
-        // Apply field mappings
-        for (Map.Entry<String, String> mapping : fieldMappings.entrySet()) {
-            String apiField = mapping.getKey();      // Field name in API response
-            String userField = mapping.getValue();   // Field name in our User entity
+        private SyncRun(String systemName, SyncProgress progress, SyncMetrics.SystemMeters meters, long startedAt) {
+            this.systemName = systemName;
+            this.progress = progress;
+            this.meters = meters;
+            this.startedAt = startedAt;
+            this.waitStart = startedAt;
+        }
+
+        /**
+         * Map one parsed record
+         *
+         * @return The user, or null if the record could not be mapped
+         */
+        private User map(RawRecord rawUser) {
+            long mapStart = System.nanoTime();
+            fetchNanos += mapStart - waitStart;
 
-            Object value = extractNestedValue(rawData, apiField);
-            
-            if (value != null) {
-                mapFieldToUser(userBuilder, userField, value.toString());
+            fetchedCount++;
+            progress.recordFetched();
+            meters.recordParsed();
+            User user = null;
+            try {
+                user = mapToUser(rawUser, config.getMappingPlan(), systemName);
+                if (user.getExternalId() != null) {
+                    seenExternalIds.add(user.getExternalId());
+                }
+                progress.recordMapped();
+                meters.recordMapped();
+            } catch (Exception e) {
+                log.error("Error mapping user: {}", rawUser.fields(), e);
+                errors.add("Failed to map user: " + e.getMessage());
+                meters.recordsFailed(1);
             }
+            waitStart = System.nanoTime();
+            mapNanos += waitStart - mapStart;
+            return user;
+        }
+    }
+
+    /**
+     * Map the latest spooled full sync of a system, plus the incremental runs after
+     * it, again with the current field mappings and upsert the result. Nothing is
+     * requested from the vendor. Pages are parsed, mapped and stored in parallel;
+     * users missing from the spool are not deleted. Users written after a replayed
+     * run completed, such as webhook updates arriving before or during the remap,
+     * are newer than the spool and kept.
+     * <p>
+     * The remap holds the system's sync slot: it is refused while a sync of the
+     * system runs, and syncs requested meanwhile start once it has finished.
+     *
+     * @throws SyncInProgressException  if a sync of the system is running
+     * @throws NothingSpooledException  if no sync run is spooled for the system
+     * @throws IllegalArgumentException if the system has no active configuration or
+     *                                  its records are enriched (the spool only holds
+     *                                  the list responses)
+     */
+    public UserSyncResponse remapUsersFromSpool(String systemName) {
+        long startedAt = System.nanoTime();
+        ResolvedConfiguration config = configCache.getActive(systemName)
+                .orElseThrow(() -> new IllegalArgumentException("No active configuration found for system: " + systemName));
+        if (config.getEnrichment() != null) {
+            throw new IllegalArgumentException("Users of " + systemName + " are enriched with detail requests "
+                    + "and cannot be remapped from the spool; run a sync instead");
         }
 
-        // Store any additional unmapped data as JSON
+        SingleFlight slot = new SingleFlight(new SyncProgress(systemName), null, true);
+        if (inFlight.putIfAbsent(systemName, slot) != null) {
+            throw new SyncInProgressException(systemName);
+        }
         try {
-            String additionalData = objectMapper.writeValueAsString(rawData);
-            userBuilder.additionalData(additionalData);
-        } catch (Exception e) {
-            log.warn("Failed to serialize additional data", e);
+            return remap(config, startedAt);
+        } finally {
+            land(systemName, slot);
         }
+    }
 
-        return userBuilder.build();
+    private UserSyncResponse remap(ResolvedConfiguration config, long startedAt) {
+        String systemName = config.getSystemName();
+        Remap remap = new Remap(config, syncMetrics.forSystem(systemName));
+
+        log.info("Remapping spooled users of system: {}", systemName);
+        ResponseSpool.Replay replay;
+        try {
+            replay = responseSpool.replay(systemName, (page, completedAt) -> remapPage(page, completedAt, remap));
+        } catch (IOException e) {
+            log.error("Failed to remap users of system: {}", systemName, e);
+            remap.errors.add(e.getMessage());
+            return UserSyncResponse.builder()
+                    .systemName(systemName)
+                    .usersFetched(remap.records.get())
+                    .usersStored(remap.totals.get().stored())
+                    .success(false)
+                    .durationMs(elapsedMillis(startedAt))
+                    .message("Failed to remap users: " + e.getMessage())
+                    .errors(List.copyOf(remap.errors))
+                    .build();
+        }
+
+        UpsertResult totals = remap.totals.get();
+        log.info("Remapped {} users of {} from {} spooled pages ({} inserted, {} updated, {} unchanged)",
+                remap.records.get(), systemName, replay.pages(), totals.inserted(), totals.updated(), totals.unchanged());
+        return UserSyncResponse.builder()
+                .systemName(systemName)
+                .usersFetched(remap.records.get())
+                .usersStored(totals.stored())
+                .usersInserted(totals.inserted())
+                .usersUpdated(totals.updated())
+                .usersUnchanged(totals.unchanged())
+                .success(true)
+                .durationMs(elapsedMillis(startedAt))
+                .message("Remapped " + replay.pages() + " spooled pages of " + systemName
+                        + " from runs " + String.join(", ", replay.runs()))
+                .errors(remap.errors.isEmpty() ? null : List.copyOf(remap.errors))
+                .build();
     }
 
     /**
-     * Extract value from nested object using dot notation (e.g., "user.profile.name")
+     * Parse, map and store one spooled page; runs on a replay worker
      */
-    private Object extractNestedValue(Map<String, Object> data, String path) {
-        String[] parts = path.split("\\.");
-        Object current = data;
+    private void remapPage(InputStream page, LocalDateTime completedAt, Remap remap) throws IOException {
+        List<User> chunk = new ArrayList<>(properties.getSync().getBatchSize());
+        byte[] buffer = new byte[REPLAY_BUFFER_SIZE];
+        try (JsonRecordStreamer streamer = new JsonRecordStreamer(objectMapper, remap.config.getDataPath())) {
+            int read;
+            while ((read = page.read(buffer)) != -1) {
+                chunk = remapRecords(streamer.feed(buffer, 0, read), completedAt, chunk, remap);
+            }
+            chunk = remapRecords(streamer.endOfInput(), completedAt, chunk, remap);
+        }
+        if (!chunk.isEmpty()) {
+            remap.store(chunk);
+        }
+    }
 
-        for (String part : parts) {
-            if (current instanceof Map) {
-                current = ((Map<?, ?>) current).get(part);
-            } else {
-                return null;
+    private List<User> remapRecords(List<RawRecord> records, LocalDateTime completedAt, List<User> chunk, Remap remap) {
+        int batchSize = properties.getSync().getBatchSize();
+        for (RawRecord record : records) {
+            remap.records.incrementAndGet();
+            remap.meters.recordParsed();
+            try {
+                User user = mapToUser(record, remap.config.getMappingPlan(), remap.config.getSystemName());
+                // As fetched by the run, so the store keeps users written since
+                user.setFetchedAt(completedAt);
+                chunk.add(user);
+                remap.meters.recordMapped();
+            } catch (Exception e) {
+                log.error("Error mapping user: {}", record.fields(), e);
+                remap.errors.add("Failed to map user: " + e.getMessage());
+                remap.meters.recordsFailed(1);
+            }
+            if (chunk.size() >= batchSize) {
+                remap.store(chunk);
+                chunk = new ArrayList<>(batchSize);
             }
         }
+        return chunk;
+    }
+
+    /**
+     * State of one remap, shared by the replay workers
+     */
+    private final class Remap {
+
+        private final ResolvedConfiguration config;
+        private final SyncMetrics.SystemMeters meters;
+        private final SyncProgress progress;
+        private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger records = new AtomicInteger();
+        private final AtomicReference<UpsertResult> totals = new AtomicReference<>(UpsertResult.EMPTY);
+
+        private Remap(ResolvedConfiguration config, SyncMetrics.SystemMeters meters) {
+            this.config = config;
+            this.meters = meters;
+            this.progress = new SyncProgress(config.getSystemName());
+        }
 
-        return current;
+        private void store(List<User> chunk) {
+            UpsertResult result = storeChunk(config.getSystemName(), StagingStore.LIVE, chunk, errors, progress, meters);
+            totals.accumulateAndGet(result, UpsertResult::plus);
+        }
     }
 
     /**
-     * Map a field value to the appropriate User entity field
+     * Upsert one chunk of mapped users, recording a failure instead of aborting the sync
      */
-    private void mapFieldToUser(User.UserBuilder builder, String fieldName, String value) {
-        switch (fieldName.toLowerCase()) {
-            case "externalid" -> builder.externalId(value);
-            case "name" -> builder.name(value);
-            case "email" -> builder.email(value);
-            case "phonenumber" -> builder.phoneNumber(value);
-            case "timezone" -> builder.timezone(value);
-            case "avatarurl" -> builder.avatarUrl(value);
-            case "schedulingurl" -> builder.schedulingUrl(value);
-            default -> log.warn("Unknown user field: {}", fieldName);
+    private UpsertResult storeChunk(
+            String systemName,
+            long generation,
+            List<User> chunk,
+            List<String> errors,
+            SyncProgress progress,
+            SyncMetrics.SystemMeters meters) {
+        long batchStart = System.nanoTime();
+        try {
+            UpsertResult result = stagingStore.upsertAll(systemName, generation, chunk);
+            progress.recordsPersisted(chunk.size());
+            meters.recordsPersisted(chunk.size());
+            return result;
+        } catch (Exception e) {
+            log.error("Error storing {} users for system: {}", chunk.size(), systemName, e);
+            errors.add("Failed to store " + chunk.size() + " users: " + e.getMessage());
+            meters.recordsFailed(chunk.size());
+            return UpsertResult.EMPTY;
+        } finally {
+            meters.dbBatch(System.nanoTime() - batchStart);
         }
     }
 
     /**
-     * Parse field mappings JSON string to Map
+     * Watermark query param for an incremental run, empty for a full run
      */
-    private Map<String, String> parseFieldMappings(String fieldMappingsJson) {
+    private Map<String, String> watermarkParams(ResolvedConfiguration config) {
+        if (config.getWatermarkParam() == null) {
+            return Map.of();
+        }
+        return syncStateRepository.findById(config.getSystemName())
+                .map(SyncState::getWatermark)
+                .map(watermark -> Map.of(config.getWatermarkParam(), watermark.toString()))
+                .orElse(Map.of());
+    }
+
+    /**
+     * Sync users from all active systems without holding a thread: up to
+     * {@code integration.sync.max-concurrent-systems} systems sync at once, each
+     * with its own timeout, and the responses come back in configuration order
+     */
+    public Flux<UserSyncResponse> syncUsersFromAllSystemsReactive() {
+        return syncUsersFromAllSystemsReactive(SyncProgress::new);
+    }
+
+    /**
+     * Sync users from all active systems, reporting each system into the progress
+     * returned for its name
+     */
+    public Flux<UserSyncResponse> syncUsersFromAllSystemsReactive(Function<String, SyncProgress> progressFor) {
+        return persistScheduler.call(configCache::getAllActive)
+                .flatMapMany(configs -> Flux.fromIterable(configs)
+                        .flatMapSequential(config -> {
+                            String systemName = config.getSystemName();
+                            Duration timeout = syncTimeout(config);
+                            // A timeout cancels the run, which drops its snapshot and spool
+                            return syncUsersFromSystemReactive(systemName, progressFor.apply(systemName))
+                                    .timeout(timeout, Mono.fromSupplier(() -> {
+                                        log.warn("Sync for system {} timed out after {}", systemName, timeout);
+                                        return failedResponse(systemName, "Sync timed out after " + timeout, timeout.toMillis());
+                                    }));
+                        }, properties.getSync().getMaxConcurrentSystems()));
+    }
+
+    private UserSyncResponse failedResponse(String systemName, String error, long durationMs) {
+        return UserSyncResponse.builder()
+                .systemName(systemName)
+                .usersFetched(0)
+                .usersStored(0)
+                .success(false)
+                .durationMs(durationMs)
+                .message("Failed to sync users: " + error)
+                .errors(List.of(error))
+                .build();
+    }
+
+    private Duration syncTimeout(ResolvedConfiguration config) {
+        return config.getSyncTimeoutSeconds() != null
+                ? Duration.ofSeconds(config.getSyncTimeoutSeconds())
+                : properties.getSync().getSystemTimeout();
+    }
+
+    private static long elapsedMillis(long startedAt) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+    }
+
+    /**
+     * Map raw API data to User entity using the compiled field mapping plan
+     */
+    static User mapToUser(RawRecord rawData, FieldMappingPlan plan, String systemName) {
+        User user = plan.map(rawData.fields(), systemName);
+
+        // Store the raw record in compact binary form, encoded from its parsed tokens;
+        // its hash, together with the mapped columns, tells whether the user changed
         try {
-            return objectMapper.readValue(fieldMappingsJson, new TypeReference<>() {});
+            byte[] additionalData = AdditionalDataCodec.encode(rawData.tokens());
+            user.setAdditionalData(additionalData);
+            user.setContentHash(ContentHash.ofUser(additionalData, user));
         } catch (Exception e) {
-            log.error("Failed to parse field mappings", e);
-            throw new RuntimeException("Invalid field mappings configuration: " + e.getMessage(), e);
+            log.warn("Failed to serialize additional data", e);
         }
+
+        return user;
     }
 
     /**
-     * Get all users from temporary storage
+     * Validate a configuration before it is saved
+     *
+     * @throws IllegalArgumentException if its field mappings, pagination, transport, rate limit or schedule settings are invalid
      */
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    public void validateConfiguration(ApiConfiguration config) {
+        configCache.resolve(config);
     }
 
     /**
-     * Get users from a specific system
+     * Get one keyset page of users, optionally limited to one system
+     *
+     * @param cursor Cursor from the previous page, or null for the first page
+     * @throws IllegalArgumentException if the cursor, limit or a field is invalid
      */
-    public List<User> getUsersBySystem(String systemName) {
-        return userRepository.findBySystemName(systemName);
+    public UserPage getUserPage(String systemName, int limit, String cursor, Set<UserField> fields) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        // One extra row tells whether there is a next page
+        List<Map<String, Object>> users = stagingStore.findPage(systemName, decodeCursor(cursor), limit + 1, fields);
+        String nextCursor = null;
+        if (users.size() > limit) {
+            users = users.subList(0, limit);
+            nextCursor = encodeCursor((Long) users.get(limit - 1).get(UserField.ID.attribute()));
+        }
+
+        return UserPage.builder()
+                .users(users)
+                .count(users.size())
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    private static String encodeCursor(Long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
     }
 
     /**
@@ -202,7 +894,7 @@ public class UserSyncService {
      */
     @Transactional
     public void clearAllUsers() {
-        userRepository.deleteAll();
+        stagingStore.deleteAll();
     }
 
     /**
@@ -210,6 +902,6 @@ public class UserSyncService {
      */
     @Transactional
     public void clearUsersBySystem(String systemName) {
-        userRepository.deleteBySystemName(systemName);
+        stagingStore.deleteBySystemName(systemName);
     }
 }
@@ -0,0 +1,390 @@
+package com.example.integration.service;
+
+import com.example.integration.config.IntegrationProperties;
+import com.example.integration.dto.WebhookIngestResponse;
+import com.example.integration.model.User;
+import com.example.integration.repository.StagingStore;
+import com.example.integration.repository.UpsertResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Takes user changes pushed by vendors and writes them in batches.
+ * <p>
+ * Payloads are mapped with the system's field mappings as they arrive and the users
+ * wait in a bounded buffer keyed by system and external ID, so a user updated again
+ * before the next flush only keeps its latest version. A single writer thread flushes
+ * the buffer once it holds {@code flush-size} users or {@code flush-interval} after
+ * the first one arrived, with one bulk upsert per system and chunk. A chunk that fails
+ * to write goes back into the buffer, unless a newer version of a user arrived in the
+ * meantime, and the writer backs off before the next flush; a user is given up on
+ * after {@code retry-attempts} failed writes. When the buffer is full, deliveries are
+ * rejected so the vendor retries them later.
+ * <p>
+ * Deliveries must be signed with the system's webhook secret: the hex HMAC-SHA256 of
+ * the raw body in {@value #SIGNATURE_HEADER}, as {@code sha256=<hex>}. Systems without
+ * a secret do not accept webhooks.
+ */
+@Service
+@Slf4j
+public class WebhookIngestService {
+
+    public static final String SIGNATURE_HEADER = "X-Webhook-Signature";
+
+    private static final String SIGNATURE_ALGORITHM = "HmacSHA256";
+    private static final String SIGNATURE_PREFIX = "sha256=";
+
+    private final ApiConfigurationCache configCache;
+    private final StagingStore stagingStore;
+    private final SyncMetrics syncMetrics;
+    private final ObjectMapper objectMapper;
+    private final IntegrationProperties.Webhooks settings;
+    private final int batchSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushNeeded = lock.newCondition();
+    private Map<PendingKey, User> pending = new LinkedHashMap<>();
+    private long oldestPendingAt;
+    private final Map<PendingKey, Integer> failedWrites = new HashMap<>();
+    private boolean backingOff;
+    private long backoffUntil;
+    private volatile boolean running = true;
+
+    private final Thread writer;
+
+    public WebhookIngestService(
+            ApiConfigurationCache configCache,
+            StagingStore stagingStore,
+            SyncMetrics syncMetrics,
+            ObjectMapper objectMapper,
+            IntegrationProperties properties) {
+        this.configCache = configCache;
+        this.stagingStore = stagingStore;
+        this.syncMetrics = syncMetrics;
+        this.objectMapper = objectMapper;
+        this.settings = properties.getWebhooks();
+        this.batchSize = properties.getSync().getBatchSize();
+
+        this.writer = new Thread(this::writeLoop, "webhook-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Map a webhook payload and queue its users for the next flush
+     *
+     * @param signature Value of the {@value #SIGNATURE_HEADER} header, null if absent
+     * @throws IllegalArgumentException   if the system has no active configuration or
+     *                                    the payload cannot be read
+     * @throws WebhookSignatureException  if the system takes no webhooks or the
+     *                                    signature is missing or wrong
+     * @throws RejectedExecutionException if the buffer is full
+     */
+    public WebhookIngestResponse ingest(String systemName, InputStream payload, String signature) {
+        ResolvedConfiguration config = configCache.getActive(systemName)
+                .orElseThrow(() -> new IllegalArgumentException("No active configuration found for system: " + systemName));
+        if (config.getWebhookSecret() == null || config.getWebhookSecret().isEmpty()) {
+            throw new WebhookSignatureException("System " + systemName + " has no webhook secret and takes no webhooks");
+        }
+        if (signature == null) {
+            throw new WebhookSignatureException("Missing " + SIGNATURE_HEADER + " header");
+        }
+        if (config.getEnrichment() != null) {
+            throw new IllegalArgumentException("Users of " + systemName
+                    + " are enriched with detail requests and cannot be taken from webhooks");
+        }
+        SyncMetrics.SystemMeters meters = syncMetrics.forSystem(systemName);
+
+        // Signed as it streams in, but nothing is queued before the signature checks out
+        Mac mac = signer(config.getWebhookSecret());
+        List<RawRecord> records = new ArrayList<>();
+        try (JsonRecordStreamer streamer = new JsonRecordStreamer(objectMapper, config.getWebhookDataPath())) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = payload.read(buffer)) != -1) {
+                mac.update(buffer, 0, read);
+                records.addAll(streamer.feed(buffer, 0, read));
+            }
+            records.addAll(streamer.endOfInput());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid webhook payload: " + e.getMessage(), e);
+        }
+        if (!signatureMatches(signature, mac.doFinal())) {
+            throw new WebhookSignatureException("Webhook signature does not match the payload");
+        }
+
+        List<User> users = new ArrayList<>(records.size());
+        List<String> errors = new ArrayList<>();
+        for (RawRecord record : records) {
+            meters.recordParsed();
+            try {
+                User user = UserSyncService.mapToUser(record, config.getMappingPlan(), systemName);
+                if (user.getExternalId() == null) {
+                    throw new IllegalArgumentException("no external ID");
+                }
+                users.add(user);
+                meters.recordMapped();
+            } catch (Exception e) {
+                errors.add("Failed to map user: " + e.getMessage());
+                meters.recordsFailed(1);
+            }
+        }
+
+        int coalesced = enqueue(systemName, users);
+        return WebhookIngestResponse.builder()
+                .systemName(systemName)
+                .usersReceived(records.size())
+                .usersAccepted(users.size())
+                .usersCoalesced(coalesced)
+                .usersFailed(errors.size())
+                .errors(errors.isEmpty() ? null : errors)
+                .build();
+    }
+
+    private static Mac signer(String secret) {
+        try {
+            Mac mac = Mac.getInstance(SIGNATURE_ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), SIGNATURE_ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(SIGNATURE_ALGORITHM + " is not available", e);
+        }
+    }
+
+    private static boolean signatureMatches(String signature, byte[] expected) {
+        if (!signature.startsWith(SIGNATURE_PREFIX)) {
+            return false;
+        }
+        byte[] given;
+        try {
+            given = HexFormat.of().parseHex(signature.substring(SIGNATURE_PREFIX.length()).trim());
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        // Constant time, so the signature cannot be guessed byte by byte
+        return MessageDigest.isEqual(given, expected);
+    }
+
+    /**
+     * Users waiting for the next flush
+     */
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Add users to the buffer, replacing pending versions of the same users
+     *
+     * @return Number of pending users that were replaced
+     */
+    private int enqueue(String systemName, List<User> users) {
+        lock.lock();
+        try {
+            // All or nothing, so a rejected delivery can simply be retried
+            if (pending.size() + users.size() > settings.getQueueCapacity()) {
+                throw new RejectedExecutionException(pending.size() + " webhook users already pending");
+            }
+            if (pending.isEmpty() && !users.isEmpty()) {
+                oldestPendingAt = System.nanoTime();
+            }
+            int coalesced = 0;
+            for (User user : users) {
+                if (pending.put(new PendingKey(systemName, user.getExternalId()), user) != null) {
+                    coalesced++;
+                }
+            }
+            if (pending.size() >= settings.getFlushSize()) {
+                flushNeeded.signal();
+            }
+            return coalesced;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeLoop() {
+        while (running) {
+            lock.lock();
+            try {
+                long waitNanos;
+                while (running && (waitNanos = flushWait()) > 0) {
+                    flushNeeded.awaitNanos(waitNanos);
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            } finally {
+                lock.unlock();
+            }
+            write(takePending());
+        }
+        write(takePending());
+        int unwritten = getPendingCount();
+        if (unwritten > 0) {
+            log.error("Shutting down with {} webhook users that could not be written", unwritten);
+        }
+    }
+
+    /**
+     * Time until the buffer is due for a flush
+     */
+    private long flushWait() {
+        if (backingOff) {
+            long backoff = backoffUntil - System.nanoTime();
+            if (backoff > 0) {
+                return backoff;
+            }
+            backingOff = false;
+        }
+        if (pending.size() >= settings.getFlushSize()) {
+            return 0;
+        }
+        long interval = settings.getFlushInterval().toNanos();
+        if (pending.isEmpty()) {
+            return interval;
+        }
+        return oldestPendingAt + interval - System.nanoTime();
+    }
+
+    private Map<PendingKey, User> takePending() {
+        lock.lock();
+        try {
+            Map<PendingKey, User> batch = pending;
+            pending = new LinkedHashMap<>();
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Upsert a flushed buffer, one system and chunk at a time
+     */
+    private void write(Map<PendingKey, User> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<String, List<User>> bySystem = new LinkedHashMap<>();
+        batch.forEach((key, user) -> bySystem.computeIfAbsent(key.systemName(), name -> new ArrayList<>()).add(user));
+
+        bySystem.forEach((systemName, users) -> {
+            SyncMetrics.SystemMeters meters = syncMetrics.forSystem(systemName);
+            UpsertResult totals = UpsertResult.EMPTY;
+            for (int from = 0; from < users.size(); from += batchSize) {
+                List<User> chunk = users.subList(from, Math.min(from + batchSize, users.size()));
+                long batchStart = System.nanoTime();
+                try {
+                    totals = totals.plus(stagingStore.upsertAll(systemName, chunk));
+                    meters.recordsPersisted(chunk.size());
+                    written(systemName, chunk);
+                } catch (Exception e) {
+                    log.warn("Error storing {} webhook users for system: {}, retrying later", chunk.size(), systemName, e);
+                    retryLater(systemName, chunk, meters);
+                } finally {
+                    meters.dbBatch(System.nanoTime() - batchStart);
+                }
+            }
+            log.debug("Flushed {} webhook users of {} ({} inserted, {} updated, {} unchanged)",
+                    users.size(), systemName, totals.inserted(), totals.updated(), totals.unchanged());
+        });
+    }
+
+    /**
+     * Forget the failed writes of users that have now been written
+     */
+    private void written(String systemName, List<User> chunk) {
+        lock.lock();
+        try {
+            if (!failedWrites.isEmpty()) {
+                for (User user : chunk) {
+                    failedWrites.remove(new PendingKey(systemName, user.getExternalId()));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Put the users of a failed chunk back into the buffer and back off before the
+     * next flush, doubling the delay with each failed write of the same users
+     */
+    private void retryLater(String systemName, List<User> chunk, SyncMetrics.SystemMeters meters) {
+        int givenUp = 0;
+        lock.lock();
+        try {
+            if (pending.isEmpty()) {
+                oldestPendingAt = System.nanoTime();
+            }
+            int attempts = 0;
+            for (User user : chunk) {
+                PendingKey key = new PendingKey(systemName, user.getExternalId());
+                int failed = failedWrites.merge(key, 1, Integer::sum);
+                if (failed >= settings.getRetryAttempts()) {
+                    failedWrites.remove(key);
+                    givenUp++;
+                } else {
+                    // A version that arrived in the meantime is newer and is written instead.
+                    // Retried users may take the buffer past its capacity for a while, which
+                    // only turns more deliveries away
+                    pending.putIfAbsent(key, user);
+                    attempts = Math.max(attempts, failed);
+                }
+            }
+            if (attempts > 0) {
+                long backoff = settings.getRetryBackoff().toNanos() << Math.min(attempts - 1, 20);
+                backoffUntil = System.nanoTime() + backoff;
+                backingOff = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (givenUp > 0) {
+            log.error("Giving up on {} webhook users of system: {} after {} failed writes",
+                    givenUp, systemName, settings.getRetryAttempts());
+            meters.recordsFailed(givenUp);
+        }
+    }
+
+    /**
+     * Write what is still pending before shutting down
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        lock.lock();
+        try {
+            running = false;
+            flushNeeded.signal();
+        } finally {
+            lock.unlock();
+        }
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    private record PendingKey(String systemName, String externalId) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.integration.service;
+
+/**
+ * Thrown for a webhook delivery whose signature is missing or does not match the
+ * system's webhook secret
+ */
+public class WebhookSignatureException extends RuntimeException {
+
+    public WebhookSignatureException(String message) {
+        super(message);
+    }
+}
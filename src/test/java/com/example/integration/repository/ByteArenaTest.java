@@ -0,0 +1,76 @@
+package com.example.integration.repository;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ByteArenaTest {
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void appendedBytesReadBackAtTheirAddress(boolean offHeap) {
+        ByteArena arena = new ByteArena(offHeap, 16);
+        long first = arena.append(bytes("hello"), 5);
+        long second = arena.append(bytes("world!"), 6);
+
+        assertArrayEquals(bytes("hello"), read(arena, first, 5));
+        assertArrayEquals(bytes("world!"), read(arena, second, 6));
+        assertEquals(5, ByteArena.offset(second));
+        assertEquals(11, arena.bytesUsed());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void recordThatDoesNotFitStartsNewChunk(boolean offHeap) {
+        ByteArena arena = new ByteArena(offHeap, 16);
+        long first = arena.append(bytes("0123456789"), 10);
+        long second = arena.append(bytes("abcdefghij"), 10);
+
+        assertEquals(0, first >>> 32);
+        assertEquals(1, second >>> 32);
+        assertEquals(0, ByteArena.offset(second));
+        assertArrayEquals(bytes("0123456789"), read(arena, first, 10));
+        assertArrayEquals(bytes("abcdefghij"), read(arena, second, 10));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void recordLargerThanChunkGetsOneOfItsOwn(boolean offHeap) {
+        ByteArena arena = new ByteArena(offHeap, 4);
+        byte[] large = bytes("larger than a chunk");
+        long address = arena.append(large, large.length);
+        long next = arena.append(bytes("abc"), 3);
+
+        assertArrayEquals(large, read(arena, address, large.length));
+        assertArrayEquals(bytes("abc"), read(arena, next, 3));
+        assertEquals(1, next >>> 32);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void onlyTheGivenLengthIsCopied(boolean offHeap) {
+        ByteArena arena = new ByteArena(offHeap, 16);
+        long first = arena.append(bytes("abcdef"), 3);
+        long second = arena.append(bytes("xyz"), 3);
+
+        assertArrayEquals(bytes("abc"), read(arena, first, 3));
+        assertEquals(3, ByteArena.offset(second));
+        assertEquals(6, arena.bytesUsed());
+    }
+
+    private static byte[] read(ByteArena arena, long address, int length) {
+        ByteBuffer chunk = arena.chunk(address);
+        byte[] value = new byte[length];
+        chunk.get(ByteArena.offset(address), value);
+        return value;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.integration.repository;
+
+import com.example.integration.config.IntegrationProperties;
+import com.example.integration.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryStagingStoreTest extends StagingStoreContract {
+
+    private InMemoryStagingStore store;
+
+    @BeforeEach
+    void createStore() {
+        store = new InMemoryStagingStore(new IntegrationProperties());
+    }
+
+    @AfterEach
+    void shutdownStore() {
+        store.shutdown();
+    }
+
+    @Override
+    StagingStore store() {
+        return store;
+    }
+
+    @Test
+    void usersAreFoundAfterIndexGrows() {
+        List<User> users = users(0, 5_000, "Name");
+        for (int from = 0; from < users.size(); from += 500) {
+            store.upsertAll(system, users.subList(from, from + 500));
+        }
+
+        assertEquals(new UpsertResult(0, 0, 5_000), store.upsertAll(system, users(0, 5_000, "Name")));
+        assertEquals(5_000, store.rowCount());
+    }
+
+    @Test
+    void deletedUsersCanBeWrittenAgain() {
+        // Deleted rows stay in the index until it is rebuilt; each round adds more of them
+        for (int round = 0; round < 30; round++) {
+            assertEquals(new UpsertResult(100, 0, 0), store.upsertAll(system, users(0, 100, "Round " + round)));
+            assertEquals(new UpsertResult(0, 0, 100), store.upsertAll(system, users(0, 100, "Round " + round)));
+            assertEquals(100, store.deleteMissing(system, Set.of()));
+        }
+        store.upsertAll(system, users(0, 100, "Last"));
+
+        assertEquals(100, visible(store).size());
+        assertEquals(Set.of("Last"), new HashSet<>(visibleNames(store).values()));
+    }
+
+    @Test
+    void compactionKeepsIdsAndIndex() {
+        store.upsertAll(system, users(0, 10_000, "Name"));
+        Set<String> survivors = new HashSet<>();
+        for (int i = 0; i < 10_000; i += 5) {
+            survivors.add("u" + i);
+        }
+        Map<String, Long> idsBefore = new HashMap<>(visibleIds(store));
+        idsBefore.keySet().retainAll(survivors);
+
+        // Deleting four in five users compacts the store
+        assertEquals(8_000, store.deleteMissing(system, survivors));
+
+        assertEquals(2_000, store.rowCount());
+        assertEquals(idsBefore, visibleIds(store));
+        List<User> again = new ArrayList<>();
+        survivors.forEach(externalId -> again.add(user(externalId, "Name")));
+        assertEquals(new UpsertResult(0, 0, 2_000), store.upsertAll(system, again));
+    }
+
+    @Test
+    void publishReclaimsSupersededRowsAndKeepsCurrentOnes() throws InterruptedException {
+        store.upsertAll(system, List.of(user("u1", "Old"), user("u2", "Unchanged"), user("u3", "Deleted")));
+        long generation = store.beginSnapshot(system);
+        store.upsertAll(system, generation, List.of(user("u1", "New"), user("u2", "Unchanged")));
+        store.deleteMissing(system, generation, Set.of("u1", "u2"));
+        assertEquals(4, store.rowCount());
+
+        store.publishSnapshot(system, generation);
+        Map<String, Long> published = visibleIds(store);
+        awaitRowCount(2);
+
+        assertEquals(published, visibleIds(store));
+        assertEquals(Map.of("u1", "New", "u2", "Unchanged"), visibleNames(store));
+    }
+
+    @Test
+    void discardReclaimsSnapshotRows() throws InterruptedException {
+        store.upsertAll(system, List.of(user("u1", "Published")));
+        long generation = store.beginSnapshot(system);
+        store.upsertAll(system, generation, List.of(user("u1", "From snapshot"), user("u2", "From snapshot")));
+        assertEquals(3, store.rowCount());
+
+        store.discardSnapshot(system, generation);
+        awaitRowCount(1);
+
+        assertEquals(Map.of("u1", "Published"), visibleNames(store));
+        assertEquals(new UpsertResult(0, 0, 1), store.upsertAll(system, List.of(user("u1", "Published"))));
+    }
+
+    @Test
+    void clearedSystemIsReclaimed() throws InterruptedException {
+        store.upsertAll(system, users(0, 100, "Name"));
+
+        store.deleteBySystemName(system);
+        awaitRowCount(0);
+
+        assertEquals(new UpsertResult(100, 0, 0), store.upsertAll(system, users(0, 100, "Name")));
+    }
+
+    @Test
+    void offHeapArenaKeepsUsers() {
+        IntegrationProperties properties = new IntegrationProperties();
+        properties.getStaging().setOffHeap(true);
+        InMemoryStagingStore offHeap = new InMemoryStagingStore(properties);
+        try {
+            offHeap.upsertAll(system, List.of(user("u1", "Ada"), user("ü2", "Zoë")));
+
+            assertEquals(Map.of("u1", "Ada", "ü2", "Zoë"), visibleNames(offHeap));
+        } finally {
+            offHeap.shutdown();
+        }
+    }
+
+    private List<User> users(int from, int to, String name) {
+        List<User> users = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            users.add(user("u" + i, name));
+        }
+        return users;
+    }
+
+    private void awaitRowCount(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (store.rowCount() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(store.rowCount() == expected, "Expected " + expected + " rows but found " + store.rowCount());
+    }
+}
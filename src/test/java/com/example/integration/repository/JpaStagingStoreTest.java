@@ -0,0 +1,57 @@
+package com.example.integration.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The shared staging checks against the JPA backend on H2. Every store call commits
+ * on its own, as in the application, so superseded rows are reclaimed for real.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(JpaStagingStore.class)
+class JpaStagingStoreTest extends StagingStoreContract {
+
+    @Autowired
+    private JpaStagingStore store;
+
+    @Override
+    StagingStore store() {
+        return store;
+    }
+
+    @Test
+    void concurrentFirstWritesOfSystemBothLand() throws Exception {
+        ExecutorService writers = Executors.newFixedThreadPool(2);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> writes = List.of("u1", "u2").stream()
+                    .map(externalId -> writers.submit(() -> {
+                        start.await();
+                        return store.upsertAll(system, List.of(user(externalId, "Name")));
+                    }))
+                    .collect(Collectors.toList());
+            start.countDown();
+            for (Future<?> write : writes) {
+                write.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            writers.shutdownNow();
+        }
+        assertEquals(List.of("u1", "u2"), visibleExternalIds(store));
+    }
+}
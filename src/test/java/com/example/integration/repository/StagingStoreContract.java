@@ -0,0 +1,275 @@
+package com.example.integration.repository;
+
+import com.example.integration.model.User;
+import com.example.integration.model.UserField;
+import com.example.integration.service.ContentHash;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Behaviour every {@link StagingStore} backend must share; each backend runs these
+ * checks through a subclass
+ */
+abstract class StagingStoreContract {
+
+    // A system per test, since the JPA backend keeps what earlier tests committed
+    final String system = "vendor-" + UUID.randomUUID();
+
+    abstract StagingStore store();
+
+    @Test
+    void unchangedUsersAreDetectedByContentHash() {
+        StagingStore store = store();
+        assertEquals(new UpsertResult(2, 0, 0), store.upsertAll(system, List.of(user("u1", "Ada"), user("u2", "Bob"))));
+        assertEquals(new UpsertResult(0, 0, 2), store.upsertAll(system, List.of(user("u1", "Ada"), user("u2", "Bob"))));
+        assertEquals(new UpsertResult(0, 1, 1), store.upsertAll(system, List.of(user("u1", "Ada L."), user("u2", "Bob"))));
+
+        assertEquals(Map.of("u1", "Ada L.", "u2", "Bob"), visibleNames(store));
+    }
+
+    @Test
+    void userWithoutContentHashIsAlwaysRewritten() {
+        StagingStore store = store();
+        store.upsertAll(system, List.of(withoutHash(user("u1", "Ada"))));
+
+        assertEquals(new UpsertResult(0, 1, 0), store.upsertAll(system, List.of(withoutHash(user("u1", "Ada")))));
+    }
+
+    @Test
+    void lastVersionOfUserInChunkWins() {
+        StagingStore store = store();
+        UpsertResult result = store.upsertAll(system, List.of(user("u1", "First"), user("u1", "Second")));
+
+        assertEquals(new UpsertResult(1, 0, 0), result);
+        assertEquals(Map.of("u1", "Second"), visibleNames(store));
+    }
+
+    @Test
+    void updatedUserKeepsItsId() {
+        StagingStore store = store();
+        store.upsertAll(system, List.of(user("u1", "Ada")));
+        Map<String, Long> before = visibleIds(store);
+
+        store.upsertAll(system, List.of(user("u1", "Ada L.")));
+
+        assertEquals(before, visibleIds(store));
+    }
+
+    @Test
+    void snapshotIsInvisibleUntilPublished() {
+        StagingStore store = store();
+        store.upsertAll(system, List.of(user("u1", "Published")));
+        long generation = store.beginSnapshot(system);
+        store.upsertAll(system, generation, List.of(user("u1", "From snapshot"), user("u2", "From snapshot")));
+
+        assertEquals(Map.of("u1", "Published"), visibleNames(store));
+        store.publishSnapshot(system, generation);
+        assertEquals(Map.of("u1", "From snapshot", "u2", "From snapshot"), visibleNames(store));
+    }
+
+    @Test
+    void discardedSnapshotLeavesPublishedUsersAsTheyWere() {
+        StagingStore store = store();
+        store.upsertAll(system, List.of(user("u1", "Published"), user("u2", "Published")));
+        long generation = store.beginSnapshot(system);
+        store.upsertAll(system, generation, List.of(user("u1", "From snapshot")));
+        store.deleteMissing(system, generation, Set.of("u1"));
+
+        store.discardSnapshot(system, generation);
+
+        assertEquals(Map.of("u1", "Published", "u2", "Published"), visibleNames(store));
+    }
+
+    @Test
+    void usersMissingFromSnapshotDisappearOnPublish() {
+        StagingStore store = store();
+        store.upsertAll(system, List.of(user("u1", "Kept"), user("u2", "Gone")));
+        long generation = store.beginSnapshot(system);
+        store.upsertAll(system, generation, List.of(user("u1", "Kept")));
+
+        assertEquals(1, store.deleteMissing(system, generation, Set.of("u1")));
+        assertEquals(List.of("u1", "u2"), visibleExternalIds(store));
+        store.publishSnapshot(system, generation);
+        assertEquals(List.of("u1"), visibleExternalIds(store));
+    }
+
+    @Test
+    void userUnchangedBySnapshotKeepsItsIdAcrossPublish() {
+        StagingStore store = store();
+        store.upsertAll(system, List.of(user("u1", "Unchanged"), user("u2", "Published")));
+        long unchangedId = visibleIds(store).get("u1");
+        long generation = store.beginSnapshot(system);
+        store.upsertAll(system, generation, List.of(user("u1", "Unchanged"), user("u2", "From snapshot")));
+
+        store.publishSnapshot(system, generation);
+
+        assertEquals(unchangedId, visibleIds(store).get("u1"));
+        assertEquals(Map.of("u1", "Unchanged", "u2", "From snapshot"), visibleNames(store));
+    }
+
+    @Test
+    void beginningSnapshotDropsOneNeverPublished() {
+        StagingStore store = store();
+        store.upsertAll(system, List.of(user("u1", "Published")));
+        long abandoned = store.beginSnapshot(system);
+        store.upsertAll(system, abandoned, List.of(user("u2", "Abandoned")));
+        store.deleteMissing(system, abandoned, Set.of("u2"));
+
+        long generation = store.beginSnapshot(system);
+        store.upsertAll(system, generation, List.of(user("u3", "From snapshot")));
+        store.publishSnapshot(system, generation);
+
+        assertEquals(Map.of("u1", "Published", "u3", "From snapshot"), visibleNames(store));
+    }
+
+    @Test
+    void clearingSystemLeavesOtherSystems() {
+        StagingStore store = store();
+        String other = system + "-other";
+        store.upsertAll(system, List.of(user("u1", "Cleared")));
+        User kept = user("u1", "Kept");
+        kept.setSystemName(other);
+        store.upsertAll(other, List.of(kept));
+
+        store.deleteBySystemName(system);
+
+        assertEquals(List.of(), visible(store));
+        assertEquals(1, store.findPage(other, null, 10, EnumSet.of(UserField.ID)).size());
+        store.upsertAll(system, List.of(user("u1", "Back")));
+        assertEquals(Map.of("u1", "Back"), visibleNames(store));
+    }
+
+    @Test
+    void liveWriteOfUserFirstWrittenBySnapshotLeavesOneRow() {
+        StagingStore store = store();
+        long generation = store.beginSnapshot(system);
+        store.upsertAll(system, generation, List.of(user("u1", "From snapshot")));
+        store.upsertAll(system, List.of(user("u1", "From webhook")));
+
+        assertEquals(Map.of("u1", "From webhook"), visibleNames(store));
+        store.publishSnapshot(system, generation);
+        assertEquals(List.of("u1"), visibleExternalIds(store));
+        assertEquals(Map.of("u1", "From webhook"), visibleNames(store));
+    }
+
+    @Test
+    void liveWriteOfUserChangedBySnapshotSurvivesPublish() {
+        StagingStore store = store();
+        store.upsertAll(system, List.of(user("u1", "Published")));
+        long generation = store.beginSnapshot(system);
+        store.upsertAll(system, generation, List.of(user("u1", "From snapshot")));
+        store.upsertAll(system, List.of(user("u1", "From webhook")));
+
+        assertEquals(Map.of("u1", "From webhook"), visibleNames(store));
+        store.publishSnapshot(system, generation);
+        assertEquals(List.of("u1"), visibleExternalIds(store));
+        assertEquals(Map.of("u1", "From webhook"), visibleNames(store));
+    }
+
+    @Test
+    void liveWriteOfUserDeletedBySnapshotSurvivesPublish() {
+        StagingStore store = store();
+        store.upsertAll(system, List.of(user("u1", "Published"), user("u2", "Kept")));
+        long generation = store.beginSnapshot(system);
+        store.upsertAll(system, generation, List.of(user("u2", "Kept")));
+        store.deleteMissing(system, generation, Set.of("u2"));
+        store.upsertAll(system, List.of(user("u1", "From webhook")));
+
+        store.publishSnapshot(system, generation);
+        assertEquals(Map.of("u1", "From webhook", "u2", "Kept"), visibleNames(store));
+    }
+
+    @Test
+    void liveWriteOfNewUserDuringSnapshotIsPublishedWithIt() {
+        StagingStore store = store();
+        long generation = store.beginSnapshot(system);
+        store.upsertAll(system, List.of(user("u1", "From webhook")));
+        store.upsertAll(system, generation, List.of(user("u2", "From snapshot")));
+
+        store.publishSnapshot(system, generation);
+        assertEquals(Map.of("u1", "From webhook", "u2", "From snapshot"), visibleNames(store));
+    }
+
+    @Test
+    void liveWriteDuringDiscardedSnapshotIsKept() {
+        StagingStore store = store();
+        store.upsertAll(system, List.of(user("u1", "Published")));
+        long generation = store.beginSnapshot(system);
+        store.upsertAll(system, generation, List.of(user("u1", "From snapshot"), user("u2", "From snapshot")));
+        store.upsertAll(system, List.of(user("u2", "From webhook")));
+
+        store.discardSnapshot(system, generation);
+        assertEquals(Map.of("u1", "Published", "u2", "From webhook"), visibleNames(store));
+    }
+
+    @Test
+    void replayedUserDoesNotOverwriteLaterWrite() {
+        StagingStore store = store();
+        store.upsertAll(system, List.of(user("u1", "From webhook")));
+
+        UpsertResult result = store.upsertAll(system, List.of(fetchedAt(user("u1", "From spool"), minutesAgo(5))));
+
+        assertEquals(new UpsertResult(0, 0, 1), result);
+        assertEquals(Map.of("u1", "From webhook"), visibleNames(store));
+    }
+
+    @Test
+    void replayedUserOverwritesEarlierWrite() {
+        StagingStore store = store();
+        store.upsertAll(system, List.of(fetchedAt(user("u1", "First run"), minutesAgo(10))));
+
+        store.upsertAll(system, List.of(fetchedAt(user("u1", "Second run"), minutesAgo(5))));
+
+        assertEquals(Map.of("u1", "Second run"), visibleNames(store));
+    }
+
+    User user(String externalId, String name) {
+        User user = new User();
+        user.setExternalId(externalId);
+        user.setSystemName(system);
+        user.setName(name);
+        user.setContentHash(ContentHash.of(externalId + name));
+        return user;
+    }
+
+    static User withoutHash(User user) {
+        user.setContentHash(null);
+        return user;
+    }
+
+    static User fetchedAt(User user, LocalDateTime fetchedAt) {
+        user.setFetchedAt(fetchedAt);
+        return user;
+    }
+
+    static LocalDateTime minutesAgo(int minutes) {
+        return LocalDateTime.now().minusMinutes(minutes);
+    }
+
+    List<Map<String, Object>> visible(StagingStore store) {
+        return store.findPage(system, null, 100_000, EnumSet.of(UserField.ID, UserField.EXTERNAL_ID, UserField.NAME));
+    }
+
+    List<String> visibleExternalIds(StagingStore store) {
+        return visible(store).stream().map(user -> (String) user.get("externalId")).sorted().toList();
+    }
+
+    Map<String, Long> visibleIds(StagingStore store) {
+        return visible(store).stream().collect(Collectors.toMap(
+                user -> (String) user.get("externalId"), user -> (Long) user.get("id")));
+    }
+
+    Map<String, String> visibleNames(StagingStore store) {
+        return visible(store).stream().collect(Collectors.toMap(
+                user -> (String) user.get("externalId"), user -> (String) user.get("name")));
+    }
+}
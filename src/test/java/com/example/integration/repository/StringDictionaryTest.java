@@ -0,0 +1,56 @@
+package com.example.integration.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class StringDictionaryTest {
+
+    private final StringDictionary dictionary = new StringDictionary();
+
+    @Test
+    void valuesRoundTripThroughTheirCodes() {
+        int berlin = dictionary.encode("Europe/Berlin");
+        int tokyo = dictionary.encode("Asia/Tokyo");
+
+        assertNotEquals(berlin, tokyo);
+        assertEquals("Europe/Berlin", dictionary.decode(berlin));
+        assertEquals("Asia/Tokyo", dictionary.decode(tokyo));
+    }
+
+    @Test
+    void equalValuesShareOneCode() {
+        int code = dictionary.encode("Europe/Berlin");
+
+        assertEquals(code, dictionary.encode(new String("Europe/Berlin")));
+        assertEquals(code, dictionary.lookup("Europe/Berlin"));
+    }
+
+    @Test
+    void nullIsEncodedWithoutAnEntry() {
+        assertEquals(StringDictionary.NULL, dictionary.encode(null));
+        assertNull(dictionary.decode(StringDictionary.NULL));
+        assertEquals(0, dictionary.encode("first"));
+    }
+
+    @Test
+    void lookupDoesNotAddValues() {
+        assertEquals(StringDictionary.NULL, dictionary.lookup("unknown"));
+        assertEquals(StringDictionary.NULL, dictionary.lookup(null));
+        assertEquals(0, dictionary.encode("first"));
+    }
+
+    @Test
+    void clearStartsCodesOver() {
+        dictionary.encode("a");
+        dictionary.encode("b");
+
+        dictionary.clear();
+
+        assertEquals(StringDictionary.NULL, dictionary.lookup("a"));
+        assertEquals(0, dictionary.encode("b"));
+        assertEquals("b", dictionary.decode(0));
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.integration.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonRecordStreamerTest {
+
+    private static final TypeReference<Map<String, Object>> RECORD_TYPE = new TypeReference<>() {};
+
+    private static final String PAYLOAD = """
+            {"meta": {"total": 3, "tags": [{"id": "skip"}]},
+             "data": {"users": [
+               {"id": 1, "name": "Zoë Ångström", "address": {"city": "Kraków", "lines": ["ul. Długa 5", null]}},
+               {"id": 2, "name": "山田太郎", "score": 12.5, "active": true, "emoji": "🚀✨"},
+               "not a record",
+               [{"id": "nested"}],
+               {"id": 3, "name": "O\\"Brien \\u00e9", "roles": [], "extra": {}}
+             ], "next": "cursör-2"},
+             "trailer": [1, 2, 3]}
+            """;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void recordsMatchWholeDocumentParseAtEverySplit() throws IOException {
+        byte[] bytes = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+        List<Map<String, Object>> expected = parseWhole(PAYLOAD, "data.users");
+        assertEquals(3, expected.size());
+
+        for (int split = 0; split <= bytes.length; split++) {
+            try (JsonRecordStreamer streamer = new JsonRecordStreamer(objectMapper, "data.users", Set.of("data.next"))) {
+                List<RawRecord> records = new ArrayList<>(streamer.feed(bytes, 0, split));
+                records.addAll(streamer.feed(bytes, split, bytes.length - split));
+                records.addAll(streamer.endOfInput());
+
+                assertEquals(expected, fieldsOf(records), "Split at byte " + split);
+                assertEquals("cursör-2", streamer.getCaptured("data.next"), "Split at byte " + split);
+            }
+        }
+    }
+
+    @Test
+    void recordsMatchWholeDocumentParseFedByteByByte() throws IOException {
+        byte[] bytes = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+        List<RawRecord> records = new ArrayList<>();
+        try (JsonRecordStreamer streamer = new JsonRecordStreamer(objectMapper, "data.users")) {
+            for (int i = 0; i < bytes.length; i++) {
+                records.addAll(streamer.feed(bytes, i, 1));
+            }
+            records.addAll(streamer.endOfInput());
+        }
+
+        assertEquals(parseWhole(PAYLOAD, "data.users"), fieldsOf(records));
+    }
+
+    @Test
+    void recordIsEmittedAsSoonAsItIsComplete() throws IOException {
+        byte[] bytes = "{\"data\": [{\"id\": 1}, {\"id\": 2}]}".getBytes(StandardCharsets.UTF_8);
+        int firstEnd = indexOf(bytes, '}') + 1;
+        try (JsonRecordStreamer streamer = new JsonRecordStreamer(objectMapper, "data")) {
+            assertTrue(streamer.feed(bytes, 0, firstEnd - 1).isEmpty());
+            assertEquals(List.of(Map.of("id", 1)), fieldsOf(streamer.feed(bytes, firstEnd - 1, 1)));
+            assertEquals(List.of(Map.of("id", 2)), fieldsOf(streamer.feed(bytes, firstEnd, bytes.length - firstEnd)));
+            assertTrue(streamer.endOfInput().isEmpty());
+        }
+    }
+
+    @Test
+    void rootArrayWithEmptyDataPath() throws IOException {
+        String payload = "[{\"id\": 1}, {\"id\": 2}]";
+        assertEquals(parseWhole(payload, ""), stream(payload, ""));
+    }
+
+    @Test
+    void singleObjectAtDataPathIsOneRecord() throws IOException {
+        String payload = "{\"data\": {\"user\": {\"id\": 7, \"name\": \"Ada\"}}}";
+        assertEquals(List.of(Map.of("id", 7, "name", "Ada")), stream(payload, "data.user"));
+    }
+
+    @Test
+    void emptyArrayYieldsNoRecords() throws IOException {
+        try (JsonRecordStreamer streamer = new JsonRecordStreamer(objectMapper, "data.users")) {
+            byte[] bytes = "{\"data\": {\"users\": []}}".getBytes(StandardCharsets.UTF_8);
+            assertTrue(streamer.feed(bytes, 0, bytes.length).isEmpty());
+            assertTrue(streamer.endOfInput().isEmpty());
+            assertTrue(streamer.isDataPathFound());
+        }
+    }
+
+    @Test
+    void missingDataPathYieldsNoRecords() throws IOException {
+        // Records under a different path, or in an array on the way, are not the data path
+        String payload = "{\"data\": [{\"users\": [{\"id\": 1}]}], \"users\": [{\"id\": 2}]}";
+        try (JsonRecordStreamer streamer = new JsonRecordStreamer(objectMapper, "data.users")) {
+            byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+            assertTrue(streamer.feed(bytes, 0, bytes.length).isEmpty());
+            assertTrue(streamer.endOfInput().isEmpty());
+            assertFalse(streamer.isDataPathFound());
+        }
+    }
+
+    @Test
+    void malformedInputFails() {
+        assertThrows(IOException.class, () -> stream("{\"data\": [{\"id\": 1,}]}", "data"));
+        assertThrows(IOException.class, () -> stream("{\"data\": [{\"id\" 1}]}", "data"));
+        assertThrows(IOException.class, () -> stream("{\"data\": [{\"name\": \"\u0000\"}]}", "data"));
+    }
+
+    @Test
+    void truncatedRecordFails() {
+        assertThrows(IOException.class, () -> stream("{\"data\": [{\"id\": 1}, {\"id\": 2", "data"));
+    }
+
+    @Test
+    void truncatedMultiByteCharacterFails() {
+        byte[] bytes = "{\"data\": [{\"name\": \"日本\"}]}".getBytes(StandardCharsets.UTF_8);
+        int cut = indexOf(bytes, (byte) 0xE6) + 2;
+        assertThrows(IOException.class, () -> {
+            try (JsonRecordStreamer streamer = new JsonRecordStreamer(objectMapper, "data")) {
+                streamer.feed(bytes, 0, cut);
+                streamer.endOfInput();
+            }
+        });
+    }
+
+    private List<Map<String, Object>> stream(String payload, String dataPath) throws IOException {
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        try (JsonRecordStreamer streamer = new JsonRecordStreamer(objectMapper, dataPath)) {
+            List<RawRecord> records = new ArrayList<>(streamer.feed(bytes, 0, bytes.length));
+            records.addAll(streamer.endOfInput());
+            return fieldsOf(records);
+        }
+    }
+
+    /**
+     * The objects under a dotted path of the fully parsed document, the reference
+     * the streamed records must equal
+     */
+    private List<Map<String, Object>> parseWhole(String payload, String dataPath) throws IOException {
+        JsonNode node = objectMapper.readTree(payload);
+        if (!dataPath.isEmpty()) {
+            for (String name : dataPath.split("\\.")) {
+                node = node.path(name);
+            }
+        }
+        List<Map<String, Object>> records = new ArrayList<>();
+        for (JsonNode element : node) {
+            if (element.isObject()) {
+                records.add(objectMapper.readValue(objectMapper.treeAsTokens(element), RECORD_TYPE));
+            }
+        }
+        return records;
+    }
+
+    private static List<Map<String, Object>> fieldsOf(List<RawRecord> records) {
+        return records.stream().map(RawRecord::fields).toList();
+    }
+
+    private static int indexOf(byte[] bytes, int value) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == (byte) value) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Byte not found: " + value);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.integration.service;
+
+import com.example.integration.model.RateLimitSettings;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.Disposable;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SystemThrottleTest {
+
+    private static final WebClientRequestException CONNECTION_REFUSED = new WebClientRequestException(
+            new IOException("Connection refused"), HttpMethod.GET, URI.create("http://vendor.test/users"), new HttpHeaders());
+
+    @Test
+    void halfOpenCircuitLetsOneTrialThrough() {
+        SystemThrottle throttle = halfOpenThrottle(null);
+
+        assertTrue(throttle.acquire().block());
+        assertThrows(CircuitOpenException.class, () -> throttle.acquire().block());
+    }
+
+    @Test
+    void successfulTrialClosesTheCircuit() {
+        SystemThrottle throttle = halfOpenThrottle(null);
+
+        assertTrue(throttle.acquire().block());
+        throttle.onResponse(new HttpHeaders());
+
+        assertFalse(throttle.acquire().block());
+        assertFalse(throttle.acquire().block());
+    }
+
+    @Test
+    void releasedTrialLetsTheNextRequestTry() {
+        SystemThrottle throttle = halfOpenThrottle(null);
+
+        // The trial was sent, then cancelled before a response or error came back
+        assertTrue(throttle.acquire().block());
+        throttle.releaseTrial();
+
+        assertTrue(throttle.acquire().block());
+    }
+
+    @Test
+    void trialCancelledWhileWaitingForItsSlotIsHandedBack() {
+        // One request per 1000s, so the trial has to wait for its slot
+        SystemThrottle throttle = halfOpenThrottle(0.001);
+
+        AtomicReference<Throwable> firstError = new AtomicReference<>();
+        Disposable trial = throttle.acquire().subscribe(granted -> { }, firstError::set);
+        assertNull(firstError.get());
+        trial.dispose();
+
+        AtomicReference<Boolean> granted = new AtomicReference<>();
+        AtomicReference<Throwable> secondError = new AtomicReference<>();
+        Disposable next = throttle.acquire().subscribe(granted::set, secondError::set);
+        try {
+            assertNull(secondError.get());
+            assertNull(granted.get()); // Still waiting for its slot, not failed fast
+        } finally {
+            next.dispose();
+        }
+    }
+
+    @Test
+    void failedTrialReopensTheCircuit() {
+        SystemThrottle throttle = halfOpenThrottle(null);
+
+        assertTrue(throttle.acquire().block());
+        throttle.onError(CONNECTION_REFUSED);
+
+        // Open again for 0s, so the next request is the new trial
+        assertTrue(throttle.acquire().block());
+        assertThrows(CircuitOpenException.class, () -> throttle.acquire().block());
+    }
+
+    /**
+     * Throttle whose circuit opened after one failure and is half-open right away
+     */
+    private static SystemThrottle halfOpenThrottle(Double requestsPerSecond) {
+        RateLimitSettings settings = new RateLimitSettings();
+        settings.setRequestsPerSecond(requestsPerSecond);
+        settings.setCircuitFailureThreshold(1);
+        settings.setCircuitOpenSeconds(0);
+        SystemThrottle throttle = new SystemThrottle("vendor", settings);
+
+        throttle.acquire().block();
+        throttle.onError(CONNECTION_REFUSED);
+        return throttle;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.integration.service;
+
+import com.example.integration.model.TransportSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TransportProfilesTest {
+
+    private final TransportProfiles profiles = new TransportProfiles(WebClient.builder());
+
+    @AfterEach
+    void shutdown() {
+        profiles.shutdown();
+    }
+
+    @Test
+    void systemKeepsItsClientWhileSettingsStayEqual() {
+        WebClient client = profiles.clientFor("vendor", new TransportSettings());
+
+        assertSame(client, profiles.clientFor("vendor", new TransportSettings()));
+    }
+
+    @Test
+    void systemsWithEqualSettingsHaveTheirOwnClients() {
+        assertNotSame(profiles.clientFor("vendor", new TransportSettings()),
+                profiles.clientFor("other", new TransportSettings()));
+    }
+
+    @Test
+    void changedSettingsReplaceTheClient() {
+        TransportSettings settings = new TransportSettings();
+        WebClient client = profiles.clientFor("vendor", settings);
+
+        TransportSettings changed = new TransportSettings();
+        changed.setMaxConnections(5);
+        WebClient replacement = profiles.clientFor("vendor", changed);
+
+        assertNotSame(client, replacement);
+        assertSame(replacement, profiles.clientFor("vendor", changed));
+    }
+
+    @Test
+    void systemsLeftOutAreDropped() {
+        WebClient kept = profiles.clientFor("vendor", new TransportSettings());
+        WebClient dropped = profiles.clientFor("other", new TransportSettings());
+
+        profiles.retainSystems(Set.of("vendor"));
+
+        assertSame(kept, profiles.clientFor("vendor", new TransportSettings()));
+        assertNotSame(dropped, profiles.clientFor("other", new TransportSettings()));
+    }
+}
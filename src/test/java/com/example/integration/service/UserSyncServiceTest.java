@@ -0,0 +1,220 @@
+package com.example.integration.service;
+
+import com.example.integration.config.IntegrationProperties;
+import com.example.integration.dto.UserSyncResponse;
+import com.example.integration.model.PaginationSettings;
+import com.example.integration.repository.InMemoryStagingStore;
+import com.example.integration.repository.SyncStateRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Single-flight behaviour of syncs: the vendor call is stubbed with one sink per
+ * run, so a test decides when each run's download ends
+ */
+class UserSyncServiceTest {
+
+    private static final String SYSTEM = "vendor";
+    private static final Duration WAIT = Duration.ofSeconds(5);
+
+    private final IntegrationProperties properties = new IntegrationProperties();
+    private final GenericApiClient apiClient = mock(GenericApiClient.class);
+    private final ApiConfigurationCache configCache = mock(ApiConfigurationCache.class);
+    private final ResponseSpool responseSpool = mock(ResponseSpool.class);
+    private final BlockingQueue<Download> downloads = new LinkedBlockingQueue<>();
+    private InMemoryStagingStore stagingStore;
+    private PersistScheduler persistScheduler;
+    private UserSyncService service;
+
+    @BeforeEach
+    void createService() {
+        ResolvedConfiguration config = ResolvedConfiguration.builder()
+                .systemName(SYSTEM)
+                .pagination(new PaginationSettings())
+                .mappingPlan(FieldMappingPlan.compile(Map.of("id", "externalId")))
+                .build();
+        when(configCache.getActive(SYSTEM)).thenReturn(Optional.of(config));
+        when(apiClient.streamExternalApi(eq(config), anyMap(), any(), any())).thenAnswer(invocation -> {
+            Download download = new Download();
+            downloads.add(download);
+            return download.records.asFlux().doOnCancel(() -> download.cancelled = true);
+        });
+
+        stagingStore = new InMemoryStagingStore(properties);
+        persistScheduler = new PersistScheduler(properties);
+        service = new UserSyncService(apiClient, configCache, stagingStore, mock(SyncStateRepository.class),
+                properties, new SyncMetrics(new SimpleMeterRegistry()), responseSpool, new ObjectMapper(), persistScheduler);
+    }
+
+    @AfterEach
+    void shutdown() {
+        persistScheduler.shutdown();
+        stagingStore.shutdown();
+    }
+
+    @Test
+    void concurrentCallersShareOneRun() throws InterruptedException {
+        Mono<UserSyncResponse> first = service.syncUsersFromSystemReactive(SYSTEM);
+        Mono<UserSyncResponse> second = service.syncUsersFromSystemReactive(SYSTEM);
+
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> nextDownload().finish())
+                .assertNext(responses -> {
+                    assertTrue(responses.getT1().isSuccess());
+                    assertSame(responses.getT1(), responses.getT2());
+                })
+                .expectComplete()
+                .verify(WAIT);
+        assertNoDownload();
+    }
+
+    @Test
+    void callersDuringRunShareExactlyOneFollowUp() throws InterruptedException {
+        properties.getSync().setCoalesceFollowUp(true);
+        Mono<UserSyncResponse> first = service.syncUsersFromSystemReactive(SYSTEM);
+        StepVerifier firstRun = StepVerifier.create(first)
+                .expectNextMatches(UserSyncResponse::isSuccess)
+                .expectComplete();
+        CompletableFuture<Void> firstDone = CompletableFuture.runAsync(() -> firstRun.verify(WAIT));
+        Download running = nextDownload();
+
+        Mono<UserSyncResponse> laterCallers = Mono.zip(
+                        service.syncUsersFromSystemReactive(SYSTEM),
+                        service.syncUsersFromSystemReactive(SYSTEM))
+                .doOnNext(responses -> assertSame(responses.getT1(), responses.getT2()))
+                .map(responses -> responses.getT1());
+        StepVerifier.create(laterCallers)
+                .then(() -> {
+                    // The follow-up waits for the running sync to end
+                    assertNoDownload();
+                    running.finish();
+                })
+                .then(() -> nextDownload().finish())
+                .expectNextMatches(UserSyncResponse::isSuccess)
+                .expectComplete()
+                .verify(WAIT);
+        firstDone.join();
+        assertNoDownload();
+    }
+
+    @Test
+    void cancellingLastWaitingCallerStopsRun() throws InterruptedException {
+        Disposable first = service.syncUsersFromSystemReactive(SYSTEM).subscribe();
+        Disposable second = service.syncUsersFromSystemReactive(SYSTEM).subscribe();
+        Download download = nextDownload();
+
+        first.dispose();
+        assertNull(downloads.poll(200, TimeUnit.MILLISECONDS));
+        assertFalse(download.cancelled);
+
+        second.dispose();
+        assertTrue(download.cancelled);
+
+        // The system's slot is free again, so the next request starts a new run
+        StepVerifier.create(service.syncUsersFromSystemReactive(SYSTEM))
+                .then(() -> nextDownload().finish())
+                .expectNextMatches(UserSyncResponse::isSuccess)
+                .expectComplete()
+                .verify(WAIT);
+    }
+
+    @Test
+    void remapIsRefusedWhileSyncHoldsSlot() throws Exception {
+        StepVerifier sync = StepVerifier.create(service.syncUsersFromSystemReactive(SYSTEM))
+                .expectNextMatches(UserSyncResponse::isSuccess)
+                .expectComplete();
+        CompletableFuture<Void> syncDone = CompletableFuture.runAsync(() -> sync.verify(WAIT));
+        Download download = nextDownload();
+
+        assertThrows(SyncInProgressException.class, () -> service.remapUsersFromSpool(SYSTEM));
+
+        download.finish();
+        syncDone.get(WAIT.toSeconds(), TimeUnit.SECONDS);
+        CountDownLatch replaying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(responseSpool.replay(eq(SYSTEM), any())).thenAnswer(invocation -> {
+            replaying.countDown();
+            release.await();
+            return new ResponseSpool.Replay(List.of(), 0);
+        });
+        CompletableFuture<UserSyncResponse> remap = CompletableFuture.supplyAsync(() -> service.remapUsersFromSpool(SYSTEM));
+        assertTrue(replaying.await(WAIT.toSeconds(), TimeUnit.SECONDS));
+
+        // A sync requested during the remap gets the slot once the remap is done
+        StepVerifier.create(service.syncUsersFromSystemReactive(SYSTEM))
+                .then(() -> {
+                    assertNoDownload();
+                    release.countDown();
+                })
+                .then(() -> nextDownload().finish())
+                .expectNextMatches(UserSyncResponse::isSuccess)
+                .expectComplete()
+                .verify(WAIT);
+        assertTrue(remap.get(WAIT.toSeconds(), TimeUnit.SECONDS).isSuccess());
+        verify(responseSpool, timeout(1_000)).replay(eq(SYSTEM), any());
+    }
+
+    private Download nextDownload() {
+        try {
+            Download download = downloads.poll(WAIT.toSeconds(), TimeUnit.SECONDS);
+            assertNotNull(download, "No run started");
+            return download;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void assertNoDownload() {
+        try {
+            assertNull(downloads.poll(200, TimeUnit.MILLISECONDS), "Unexpected run started");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Records of one run's vendor call
+     */
+    private static final class Download {
+
+        private final Sinks.Many<RawRecord> records = Sinks.many().unicast().onBackpressureBuffer();
+        private volatile boolean cancelled;
+
+        private void finish() {
+            records.tryEmitComplete();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.integration.service;
+
+import com.example.integration.config.IntegrationProperties;
+import com.example.integration.model.User;
+import com.example.integration.repository.StagingStore;
+import com.example.integration.repository.UpsertResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WebhookIngestServiceTest {
+
+    private static final String SYSTEM = "vendor";
+    private static final String SECRET = "shared-secret";
+    private static final String PAYLOAD = "{\"id\":\"u1\",\"name\":\"Ada\"}";
+
+    private final ApiConfigurationCache configCache = mock(ApiConfigurationCache.class);
+    private final StagingStore stagingStore = mock(StagingStore.class);
+    private WebhookIngestService service;
+
+    @BeforeEach
+    void createService() {
+        IntegrationProperties properties = new IntegrationProperties();
+        properties.getWebhooks().setFlushInterval(Duration.ofMillis(10));
+        properties.getWebhooks().setRetryBackoff(Duration.ofMillis(10));
+        properties.getWebhooks().setRetryAttempts(3);
+        service = new WebhookIngestService(configCache, stagingStore,
+                new SyncMetrics(new SimpleMeterRegistry()), new ObjectMapper(), properties);
+        configure(SECRET);
+    }
+
+    @AfterEach
+    void shutdownService() throws InterruptedException {
+        service.shutdown();
+    }
+
+    @Test
+    void deliveryWithoutSignatureIsRefused() {
+        assertThrows(WebhookSignatureException.class, () -> ingest(PAYLOAD, null));
+        assertEquals(0, service.getPendingCount());
+    }
+
+    @Test
+    void deliverySignedWithAnotherSecretIsRefused() {
+        assertThrows(WebhookSignatureException.class, () -> ingest(PAYLOAD, sign("other-secret", PAYLOAD)));
+        assertThrows(WebhookSignatureException.class, () -> ingest(PAYLOAD, "sha256=not-hex"));
+        assertEquals(0, service.getPendingCount());
+    }
+
+    @Test
+    void systemWithoutSecretTakesNoWebhooks() {
+        configure(null);
+        assertThrows(WebhookSignatureException.class, () -> ingest(PAYLOAD, sign(SECRET, PAYLOAD)));
+    }
+
+    @Test
+    void failedWriteIsRetried() throws Exception {
+        List<String> written = new ArrayList<>();
+        when(stagingStore.upsertAll(eq(SYSTEM), anyList()))
+                .thenThrow(new IllegalStateException("database down"))
+                .thenAnswer(invocation -> {
+                    List<User> users = invocation.getArgument(1);
+                    users.forEach(user -> written.add(user.getName()));
+                    return UpsertResult.EMPTY;
+                });
+
+        ingest(PAYLOAD, sign(SECRET, PAYLOAD));
+
+        verify(stagingStore, timeout(5_000).times(2)).upsertAll(eq(SYSTEM), anyList());
+        assertEquals(List.of("Ada"), written);
+        assertEquals(0, service.getPendingCount());
+    }
+
+    @Test
+    void failingUserIsGivenUpOnAfterRetryAttempts() throws Exception {
+        when(stagingStore.upsertAll(eq(SYSTEM), anyList())).thenThrow(new IllegalStateException("database down"));
+
+        ingest(PAYLOAD, sign(SECRET, PAYLOAD));
+
+        verify(stagingStore, after(500).times(3)).upsertAll(eq(SYSTEM), anyList());
+        assertEquals(0, service.getPendingCount());
+    }
+
+    private void configure(String webhookSecret) {
+        ResolvedConfiguration config = ResolvedConfiguration.builder()
+                .systemName(SYSTEM)
+                .webhookSecret(webhookSecret)
+                .mappingPlan(FieldMappingPlan.compile(Map.of("id", "externalId", "name", "name")))
+                .build();
+        when(configCache.getActive(SYSTEM)).thenReturn(Optional.of(config));
+    }
+
+    private void ingest(String payload, String signature) {
+        service.ingest(SYSTEM, new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8)), signature);
+    }
+
+    private static String sign(String secret, String payload) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return "sha256=" + HexFormat.of().formatHex(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -97,12 +97,12 @@ fi
 # 7. Get all users
 print_section "7. Getting All Fetched Users"
 echo "GET $BASE_URL/users"
-curl -s -X GET "$BASE_URL/users" | jq '. | length as $count | {total_users: $count, users: .}'
+curl -s -X GET "$BASE_URL/users" | jq '{users_on_page: .count, next_cursor: .nextCursor, users: .users}'
 
 # 8. Get users by system
 print_section "8. Getting Users from Mock API"
 echo "GET $BASE_URL/users/mock-api"
-curl -s -X GET "$BASE_URL/users/mock-api" | jq '.[0:3]'  # Show first 3 users
+curl -s -X GET "$BASE_URL/users/mock-api?limit=3&fields=externalId,name,email" | jq '.users'  # Show first 3 users
 
 # 9. Try syncing from Calendly (will need API token)
 print_section "9. Testing Calendly Sync (Update Token First!)"
@@ -136,7 +136,7 @@ print_success "Mock API users cleared"
 # 12. Verify users cleared
 print_section "12. Verifying Mock API Users Cleared"
 echo "GET $BASE_URL/users/mock-api"
-REMAINING=$(curl -s -X GET "$BASE_URL/users/mock-api" | jq '. | length')
+REMAINING=$(curl -s -X GET "$BASE_URL/users/mock-api" | jq '.count')
 echo "Remaining mock-api users: $REMAINING"
 
 if [ "$REMAINING" -eq 0 ]; then